@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath;
+
+/**
+ * A simple implementation of {@link CompiledBatch} that evaluates the
+ * expressions one by one.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class BasicCompiledBatch implements CompiledBatch {
+    private final CompiledExpression[] expressions;
+
+    /**
+     * Create a new BasicCompiledBatch.
+     * @param expressions compiled
+     */
+    public BasicCompiledBatch(CompiledExpression[] expressions) {
+        this.expressions = expressions.clone();
+    }
+
+    public CompiledExpression[] getExpressions() {
+        return expressions.clone();
+    }
+
+    public Object[] getValues(JXPathContext context, Class requiredType,
+            JXPathException[] errors) {
+        checkErrors(errors);
+        Object[] values =
+            JXPathContext.newValueArray(expressions.length, requiredType);
+        for (int i = 0; i < expressions.length; i++) {
+            try {
+                values[i] = expressions[i].getValue(context, requiredType);
+            }
+            catch (JXPathException ex) {
+                if (errors == null) {
+                    throw ex;
+                }
+                errors[i] = ex;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Checks that an array supplied to receive the exceptions thrown has
+     * one element per expression.
+     * @param errors array to check, may be <code>null</code>
+     * @throws IllegalArgumentException if the length of the array does not
+     *         match the number of expressions
+     */
+    protected void checkErrors(JXPathException[] errors) {
+        if (errors != null && errors.length != expressions.length) {
+            throw new IllegalArgumentException("Expected an array of "
+                    + expressions.length + " errors, got " + errors.length);
+        }
+    }
+}
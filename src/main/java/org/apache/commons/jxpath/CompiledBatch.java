@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath;
+
+/**
+ * Represents a number of XPaths compiled together so that they can be
+ * evaluated as a batch, possibly faster than one by one: the reference
+ * implementation walks the leading steps that several location paths have
+ * in common only once. Whatever is worked out when the batch is compiled
+ * is kept with it, so a CompiledBatch should be cached and reused when the
+ * same XPaths are evaluated repeatedly.
+ * <p>
+ * To acquire a CompiledBatch, call {@link JXPathContext#compile(String[])
+ * JXPathContext.compile}
+ * </p>
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public interface CompiledBatch {
+
+    /**
+     * Get the compiled expressions, in the order of the XPaths they were
+     * compiled from.
+     * @return CompiledExpression[]
+     */
+    CompiledExpression[] getExpressions();
+
+    /**
+     * Evaluates the expressions against a context, as
+     * {@link CompiledExpression#getValue(JXPathContext, Class)} would, and
+     * returns their values in an array of the required type.
+     * <p>
+     * If <code>errors</code> is supplied, an exception thrown by one
+     * expression does not prevent the others from being evaluated: its value
+     * is left <code>null</code> and the exception is stored at the same index
+     * of <code>errors</code>. Otherwise the exception is thrown.
+     * </p>
+     * @param context to evaluate
+     * @param requiredType type to convert values to, <code>null</code> to
+     *        leave them as they are
+     * @param errors receives the exceptions thrown, may be <code>null</code>
+     * @return Object[] whose component type is the required type, with a
+     *         primitive type wrapped
+     * @throws IllegalArgumentException if <code>errors</code> is supplied
+     *         and its length does not match the number of expressions
+     */
+    Object[] getValues(JXPathContext context, Class requiredType,
+            JXPathException[] errors);
+}
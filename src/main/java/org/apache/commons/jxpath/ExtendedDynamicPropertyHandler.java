@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath;
+
+/**
+ * A {@link DynamicPropertyHandler} that can tell whether an object has
+ * a given property without listing all its properties. JXPath uses this
+ * capability to resolve named access, e.g. <code>map/key</code> or
+ * <code>map[@name = 'key']</code>, without enumerating and sorting all
+ * property names of the object.
+ *
+ * @since JXPath 1.4
+ * @version $Revision$ $Date$
+ */
+public interface ExtendedDynamicPropertyHandler extends DynamicPropertyHandler {
+
+    /**
+     * Learn whether the supplied object has the specified dynamic property.
+     * The result must agree with {@link #getPropertyNames(Object)}.
+     * @param object to inspect
+     * @param propertyName to look for
+     * @return boolean
+     */
+    boolean hasProperty(Object object, String propertyName);
+}
@@ -17,11 +17,16 @@
 package org.apache.commons.jxpath;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.jxpath.util.MethodLookupUtils;
 
 /**
  * An object that aggregates {@link Functions} objects into a group Functions
@@ -33,8 +38,11 @@ import java.util.Set;
  * @version $Revision$ $Date$
  */
 public class FunctionLibrary implements Functions {
+    /** Marks a cached failure to find a function */
+    private static final Object NOT_FOUND = new Object();
+
     private final List allFunctions = new ArrayList();
-    private Map byNamespace;
+    private volatile FunctionIndex index;
 
     /**
      * Add functions to the library
@@ -43,7 +51,7 @@ public class FunctionLibrary implements Functions {
     public void addFunctions(Functions functions) {
         allFunctions.add(functions);
         synchronized (this) {
-            byNamespace = null;
+            index = null;
         }
     }
 
@@ -54,7 +62,7 @@ public class FunctionLibrary implements Functions {
     public void removeFunctions(Functions functions) {
         allFunctions.remove(functions);
         synchronized (this) {
-            byNamespace = null;
+            index = null;
         }
     }
 
@@ -64,12 +72,18 @@ public class FunctionLibrary implements Functions {
      * @return Set<String>
      */
     public Set getUsedNamespaces() {
-        return functionCache().keySet();
+        return functionCache().byNamespace.keySet();
     }
 
     /**
      * Returns a Function, if any, for the specified namespace,
      * name and parameter types.
+     * <p>
+     * When the Functions registered for the namespace are
+     * {@link PackageFunctions} or {@link ClassFunctions}, whose lookup only
+     * depends on the classes of the parameters, the outcome, including not
+     * finding a function, is remembered until the library is modified.
+     * </p>
      * @param namespace function namespace
      * @param name function name
      * @param parameters parameters
@@ -77,7 +91,39 @@ public class FunctionLibrary implements Functions {
      */
     public Function getFunction(String namespace, String name,
             Object[] parameters) {
-        Object candidates = functionCache().get(namespace);
+        FunctionIndex cache = functionCache();
+        Object candidates = cache.byNamespace.get(namespace);
+        if (candidates == null) {
+            return null;
+        }
+        FunctionKey key = null;
+        if (cache.isResolvedByType(namespace)) {
+            Class[] types = MethodLookupUtils.getParameterClasses(parameters);
+            if (types != null) {
+                key = new FunctionKey(namespace, name, types);
+                Object function = cache.resolved.get(key);
+                if (function != null) {
+                    return function == NOT_FOUND ? null : (Function) function;
+                }
+            }
+        }
+        Function function = findFunction(candidates, namespace, name, parameters);
+        if (key != null) {
+            cache.resolved.put(key, function == null ? NOT_FOUND : function);
+        }
+        return function;
+    }
+
+    /**
+     * Ask the candidate Functions for a Function in turn.
+     * @param candidates a Functions or a List of them
+     * @param namespace function namespace
+     * @param name function name
+     * @param parameters parameters
+     * @return Function found
+     */
+    private static Function findFunction(Object candidates, String namespace,
+            String name, Object[] parameters) {
         if (candidates instanceof Functions) {
             return ((Functions) candidates).getFunction(
                 namespace,
@@ -103,33 +149,106 @@ public class FunctionLibrary implements Functions {
 
     /**
      * Prepare the cache.
-     * @return cache map keyed by namespace
+     * @return cache keyed by namespace
      */
-    private synchronized Map functionCache() {
-        if (byNamespace == null) {
-            byNamespace = new HashMap();
-            int count = allFunctions.size();
-            for (int i = 0; i < count; i++) {
-                Functions funcs = (Functions) allFunctions.get(i);
-                Set namespaces = funcs.getUsedNamespaces();
-                for (Iterator it = namespaces.iterator(); it.hasNext();) {
-                    String ns = (String) it.next();
-                    Object candidates = byNamespace.get(ns);
-                    if (candidates == null) {
-                        byNamespace.put(ns, funcs);
-                    }
-                    else if (candidates instanceof Functions) {
-                        List lst = new ArrayList();
-                        lst.add(candidates);
-                        lst.add(funcs);
-                        byNamespace.put(ns, lst);
-                    }
-                    else {
-                        ((List) candidates).add(funcs);
+    private FunctionIndex functionCache() {
+        FunctionIndex cache = index;
+        if (cache != null) {
+            return cache;
+        }
+        synchronized (this) {
+            if (index == null) {
+                FunctionIndex newIndex = new FunctionIndex();
+                Map byNamespace = newIndex.byNamespace;
+                int count = allFunctions.size();
+                for (int i = 0; i < count; i++) {
+                    Functions funcs = (Functions) allFunctions.get(i);
+                    Set namespaces = funcs.getUsedNamespaces();
+                    for (Iterator it = namespaces.iterator(); it.hasNext();) {
+                        String ns = (String) it.next();
+                        Object candidates = byNamespace.get(ns);
+                        if (candidates == null) {
+                            byNamespace.put(ns, funcs);
+                        }
+                        else if (candidates instanceof Functions) {
+                            List lst = new ArrayList();
+                            lst.add(candidates);
+                            lst.add(funcs);
+                            byNamespace.put(ns, lst);
+                        }
+                        else {
+                            ((List) candidates).add(funcs);
+                        }
+                        Class type = funcs.getClass();
+                        if (type != PackageFunctions.class
+                                && type != ClassFunctions.class) {
+                            // Subclasses may override getFunction
+                            newIndex.unresolvedByType.add(ns);
+                        }
                     }
                 }
+                index = newIndex;
+            }
+            return index;
+        }
+    }
+
+    /**
+     * The Functions of the library indexed by namespace, and the functions
+     * found so far. Both are dropped when the library is modified.
+     */
+    private static final class FunctionIndex {
+        private final Map byNamespace = new HashMap();
+        private final Set unresolvedByType = new HashSet();
+        private final Map resolved = new ConcurrentHashMap();
+
+        /**
+         * Learn whether the functions found in a namespace only depend on
+         * the classes of the parameters.
+         * @param namespace to check
+         * @return boolean
+         */
+        private boolean isResolvedByType(String namespace) {
+            return !unresolvedByType.contains(namespace);
+        }
+    }
+
+    /**
+     * Identifies a function lookup.
+     */
+    private static final class FunctionKey {
+        private final String namespace;
+        private final String name;
+        private final Class[] types;
+        private final int hashCode;
+
+        /**
+         * Create a new FunctionKey.
+         * @param namespace function namespace
+         * @param name function name
+         * @param types parameter classes
+         */
+        private FunctionKey(String namespace, String name, Class[] types) {
+            this.namespace = namespace;
+            this.name = name;
+            this.types = types;
+            this.hashCode = (namespace == null ? 0 : namespace.hashCode()) * 31
+                    + name.hashCode() * 17 + Arrays.hashCode(types);
+        }
+
+        public int hashCode() {
+            return hashCode;
+        }
+
+        public boolean equals(Object object) {
+            if (!(object instanceof FunctionKey)) {
+                return false;
             }
+            FunctionKey other = (FunctionKey) object;
+            return name.equals(other.name)
+                    && (namespace == null ? other.namespace == null
+                            : namespace.equals(other.namespace))
+                    && Arrays.equals(types, other.types);
         }
-        return byNamespace;
     }
 }
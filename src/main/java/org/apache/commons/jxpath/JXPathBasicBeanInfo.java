@@ -24,6 +24,8 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 
+import org.apache.commons.jxpath.util.PropertyAccessor;
+
 /**
  * An implementation of JXPathBeanInfo based on JavaBeans' BeanInfo. Properties
  * advertised by JXPathBasicBeanInfo are the same as those advertised by
@@ -48,8 +50,32 @@ public class JXPathBasicBeanInfo implements JXPathBeanInfo {
     private boolean atomic = false;
     private Class clazz;
     private Class dynamicPropertyHandlerClass;
-    private transient PropertyDescriptor[] propertyDescriptors;
-    private transient HashMap propertyDescriptorMap;
+    private transient volatile Properties properties;
+    private transient volatile PropertyAccessor[] propertyAccessors;
+
+    /**
+     * Immutable property tables of a class: the descriptors sorted by name,
+     * their interned names and the index of each name.
+     */
+    private static final class Properties {
+        private final PropertyDescriptor[] descriptors;
+        private final String[] names;
+        private final HashMap indexes;
+
+        /**
+         * Create a new Properties.
+         * @param descriptors sorted property descriptors
+         */
+        private Properties(PropertyDescriptor[] descriptors) {
+            this.descriptors = descriptors;
+            names = new String[descriptors.length];
+            indexes = new HashMap();
+            for (int i = 0; i < descriptors.length; i++) {
+                names[i] = descriptors[i].getName().intern();
+                indexes.put(names[i], new Integer(i));
+            }
+        }
+    }
 
     /**
      * Create a new JXPathBasicBeanInfo.
@@ -98,10 +124,107 @@ public class JXPathBasicBeanInfo implements JXPathBeanInfo {
         return dynamicPropertyHandlerClass != null;
     }
 
-    public synchronized PropertyDescriptor[] getPropertyDescriptors() {
-        if (propertyDescriptors == null) {
+    public PropertyDescriptor[] getPropertyDescriptors() {
+        PropertyDescriptor[] descriptors = getProperties().descriptors;
+        if (descriptors.length == 0) {
+            return descriptors;
+        }
+        PropertyDescriptor[] result = new PropertyDescriptor[descriptors.length];
+        System.arraycopy(descriptors, 0, result, 0, descriptors.length);
+        return result;
+    }
+
+    /**
+     * Get the number of properties.
+     * @return int
+     * @since JXPath 1.4
+     */
+    public int getPropertyCount() {
+        return getProperties().descriptors.length;
+    }
+
+    /**
+     * Get the descriptor of a property by its index in the alphabetically
+     * sorted list of properties, without copying the list.
+     * @param index property index
+     * @return PropertyDescriptor
+     * @since JXPath 1.4
+     */
+    public PropertyDescriptor getPropertyDescriptor(int index) {
+        return getProperties().descriptors[index];
+    }
+
+    /**
+     * Get the names of the properties, sorted alphabetically. The names are
+     * interned, so they match the interned names of compiled node tests by
+     * reference. The returned array is shared and must not be modified.
+     * @return String[]
+     * @since JXPath 1.4
+     */
+    public String[] getPropertyNames() {
+        return getProperties().names;
+    }
+
+    public PropertyDescriptor getPropertyDescriptor(String propertyName) {
+        Properties properties = getProperties();
+        Integer index = (Integer) properties.indexes.get(propertyName);
+        return index == null ? null : properties.descriptors[index.intValue()];
+    }
+
+    /**
+     * Get the pre-resolved accessors of a property by its index in the
+     * alphabetically sorted list of properties. The accessors of all
+     * properties are resolved the first time any of them is requested
+     * and shared from then on.
+     * @param index property index
+     * @return PropertyAccessor
+     * @since JXPath 1.4
+     */
+    public PropertyAccessor getPropertyAccessor(int index) {
+        return getPropertyAccessors()[index];
+    }
+
+    /**
+     * Get the pre-resolved accessors of the named property.
+     * @param propertyName property name
+     * @return PropertyAccessor or <code>null</code> if there is no such property
+     * @since JXPath 1.4
+     */
+    public PropertyAccessor getPropertyAccessor(String propertyName) {
+        Integer index = (Integer) getProperties().indexes.get(propertyName);
+        return index == null ? null : getPropertyAccessors()[index.intValue()];
+    }
+
+    /**
+     * Get the property accessors, creating them if necessary. Concurrent
+     * first calls may each create the accessors; either result is valid.
+     * @return PropertyAccessor[]
+     */
+    private PropertyAccessor[] getPropertyAccessors() {
+        PropertyAccessor[] accessors = propertyAccessors;
+        if (accessors == null) {
+            PropertyDescriptor[] descriptors = getProperties().descriptors;
+            accessors = new PropertyAccessor[descriptors.length];
+            for (int i = 0; i < descriptors.length; i++) {
+                accessors[i] = new PropertyAccessor(descriptors[i]);
+            }
+            propertyAccessors = accessors;
+        }
+        return accessors;
+    }
+
+    /**
+     * Get the property tables, introspecting the class if necessary.
+     * Concurrent first calls may each introspect the class; the tables
+     * are immutable, so either result is valid.
+     * @return Properties
+     */
+    private Properties getProperties() {
+        Properties result = properties;
+        if (result == null) {
+            PropertyDescriptor[] descriptors;
             if (clazz == Object.class) {
-                propertyDescriptors = new PropertyDescriptor[0];
+                descriptors = new PropertyDescriptor[0];
             }
             else {
                 try {
@@ -113,36 +236,21 @@ public class JXPathBasicBeanInfo implements JXPathBeanInfo {
                         bi = Introspector.getBeanInfo(clazz, Object.class);
                     }
                     PropertyDescriptor[] pds = bi.getPropertyDescriptors();
-                    PropertyDescriptor[] descriptors = new PropertyDescriptor[pds.length];
+                    descriptors = new PropertyDescriptor[pds.length];
                     System.arraycopy(pds, 0, descriptors, 0, pds.length);
                     Arrays.sort(descriptors, PROPERTY_DESCRIPTOR_COMPARATOR);
-                    propertyDescriptors = descriptors;
                 }
                 catch (IntrospectionException ex) {
                     ex.printStackTrace();
-                    return new PropertyDescriptor[0];
+                    return new Properties(new PropertyDescriptor[0]);
                 }
             }
+            result = new Properties(descriptors);
+            properties = result;
         }
-        if (propertyDescriptors.length == 0) {
-            return propertyDescriptors;
-        }
-        PropertyDescriptor[] result = new PropertyDescriptor[propertyDescriptors.length];
-        System.arraycopy(propertyDescriptors, 0, result, 0, propertyDescriptors.length);
         return result;
     }
 
-    public synchronized PropertyDescriptor getPropertyDescriptor(String propertyName) {
-        if (propertyDescriptorMap == null) {
-            propertyDescriptorMap = new HashMap();
-            PropertyDescriptor[] pds = getPropertyDescriptors();
-            for (int i = 0; i < pds.length; i++) {
-                propertyDescriptorMap.put(pds[i].getName(), pds[i]);
-            }
-        }
-        return (PropertyDescriptor) propertyDescriptorMap.get(propertyName);
-    }
-
     /**
      * For a dynamic class, returns the corresponding DynamicPropertyHandler
      * class.
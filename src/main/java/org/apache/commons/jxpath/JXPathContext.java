@@ -16,14 +16,25 @@
  */
 package org.apache.commons.jxpath;
 
+import java.lang.reflect.Array;
 import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
+import org.apache.commons.jxpath.ri.TopNodeUtil;
 import org.apache.commons.jxpath.util.KeyManagerUtils;
+import org.apache.commons.jxpath.util.LazyList;
+import org.apache.commons.jxpath.util.RootBatchUtils;
+import org.apache.commons.jxpath.util.TypeUtils;
+import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
  * JXPathContext  provides APIs for the traversal of graphs of JavaBeans using
@@ -426,9 +437,16 @@ public abstract class JXPathContext {
     /** decimal format map */
     protected HashMap decimalFormats;
 
-    private Locale locale;
-    private boolean lenientSet = false;
-    private boolean lenient = false;
+    private volatile Locale locale;
+    private volatile boolean lenientSet = false;
+    private volatile boolean lenient = false;
+    private volatile boolean forkJoinPoolSet = false;
+    private volatile ForkJoinPool forkJoinPool;
+    private volatile int parallelThreshold = -1;
+    private volatile int maxParallelBranches = -1;
+
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 32;
+    private static final int DEFAULT_MAX_PARALLEL_BRANCHES = 4;
 
     /**
      * Creates a new JXPathContext with the specified object as the root node.
@@ -475,6 +493,27 @@ public abstract class JXPathContext {
         this.contextBean = contextBean;
     }
 
+    /**
+     * Creates a new JXPathContext with the specified bean as the root node
+     * and this context as its template. The new context sees the variables,
+     * extension functions, namespaces, factory, locale and other settings of
+     * this one, like a child context created with
+     * {@link #newContext(JXPathContext, Object)}. Unlike a child context, it
+     * may share state such as variables with the template instead of having
+     * its own; see the implementation.
+     * <p>
+     * A template that is no longer reconfigured may be shared by several
+     * threads, each of them binding it to the beans it works on. Binding is
+     * meant to be cheap enough to do for every bean processed.
+     * </p>
+     * @param contextBean Object
+     * @return JXPathContext
+     * @since JXPath 1.4
+     */
+    public JXPathContext bind(Object contextBean) {
+        return newContext(this, contextBean);
+    }
+
     /**
      * Returns the parent context of this context or null.
      * @return JXPathContext
@@ -592,14 +631,16 @@ public abstract class JXPathContext {
      * Otherwise, returns Locale.getDefault().
      * @return Locale
      */
-    public synchronized Locale getLocale() {
-        if (locale == null) {
+    public Locale getLocale() {
+        Locale result = locale;
+        if (result == null) {
             if (parentContext != null) {
                 return parentContext.getLocale();
             }
-            locale = Locale.getDefault();
+            result = Locale.getDefault();
+            locale = result;
         }
-        return locale;
+        return result;
     }
 
     /**
@@ -642,7 +683,7 @@ public abstract class JXPathContext {
      * By default, lenient = false
      * @param lenient flag
      */
-    public synchronized void setLenient(boolean lenient) {
+    public void setLenient(boolean lenient) {
         this.lenient = lenient;
         lenientSet = true;
     }
@@ -652,13 +693,117 @@ public abstract class JXPathContext {
      * @return boolean
      * @see #setLenient(boolean)
      */
-    public synchronized boolean isLenient() {
+    public boolean isLenient() {
         if (!lenientSet && parentContext != null) {
             return parentContext.isLenient();
         }
         return lenient;
     }
 
+    /**
+     * Sets the pool used to evaluate parts of expressions in parallel. By
+     * default there is none, and expressions are evaluated entirely by the
+     * calling thread.
+     * <p>
+     * With a pool, the descendant axes of a path walk the subtrees of the
+     * context node as fork-join tasks, and merge the nodes found back into
+     * document order. Predicates that depend on the candidate node but do
+     * not use <code>position()</code> or <code>last()</code> are evaluated
+     * by fork-join tasks for batches of candidate nodes, if there are at
+     * least {@link #getParallelThreshold()} of them; the nodes passing are
+     * returned in their original order. The branches of a union are
+     * iterated by up to {@link #getMaxParallelBranches()} tasks, and their
+     * nodes merged in document order. The pool only pays off for large
+     * graphs or expensive predicates, and must only be used with graphs
+     * and extension functions that can safely be used by several threads
+     * at once; a DOM, for instance, does not guarantee that.
+     * </p>
+     * @param pool ForkJoinPool, <code>null</code> to evaluate sequentially
+     *        even if the parent context has a pool
+     * @since JXPath 1.4
+     */
+    public void setForkJoinPool(ForkJoinPool pool) {
+        this.forkJoinPool = pool;
+        forkJoinPoolSet = true;
+    }
+
+    /**
+     * Returns the pool set with setForkJoinPool. If none was set and the
+     * context has a parent, returns the parent's pool.
+     * @return ForkJoinPool or <code>null</code>
+     * @see #setForkJoinPool(ForkJoinPool)
+     * @since JXPath 1.4
+     */
+    public ForkJoinPool getForkJoinPool() {
+        if (!forkJoinPoolSet && parentContext != null) {
+            return parentContext.getForkJoinPool();
+        }
+        return forkJoinPool;
+    }
+
+    /**
+     * Sets the number of candidate nodes from which predicates are evaluated
+     * in parallel when a pool is set. The default is 32.
+     * @param threshold minimum number of candidate nodes, at least 1
+     * @see #setForkJoinPool(ForkJoinPool)
+     * @since JXPath 1.4
+     */
+    public void setParallelThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException(
+                "Threshold must be positive: " + threshold);
+        }
+        this.parallelThreshold = threshold;
+    }
+
+    /**
+     * Returns the threshold set with setParallelThreshold. If none was set
+     * and the context has a parent, returns the parent's threshold.
+     * @return int
+     * @see #setParallelThreshold(int)
+     * @since JXPath 1.4
+     */
+    public int getParallelThreshold() {
+        int threshold = parallelThreshold;
+        if (threshold < 0) {
+            return parentContext == null ? DEFAULT_PARALLEL_THRESHOLD
+                    : parentContext.getParallelThreshold();
+        }
+        return threshold;
+    }
+
+    /**
+     * Sets the largest number of tasks the branches of a union are
+     * iterated by when a pool is set, so that a union of many branches
+     * leaves room in the pool for other work. The default is 4.
+     * @param max number of tasks per union, at least 1
+     * @see #setForkJoinPool(ForkJoinPool)
+     * @since JXPath 1.4
+     */
+    public void setMaxParallelBranches(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException(
+                "Maximum must be positive: " + max);
+        }
+        this.maxParallelBranches = max;
+    }
+
+    /**
+     * Returns the maximum set with setMaxParallelBranches. If none was set
+     * and the context has a parent, returns the parent's maximum.
+     * @return int
+     * @see #setMaxParallelBranches(int)
+     * @since JXPath 1.4
+     */
+    public int getMaxParallelBranches() {
+        int max = maxParallelBranches;
+        if (max < 0) {
+            return parentContext == null ? DEFAULT_MAX_PARALLEL_BRANCHES
+                    : parentContext.getMaxParallelBranches();
+        }
+        return max;
+    }
+
     /**
      * Compiles the supplied XPath and returns an internal representation
      * of the path that can then be evaluated.  Use CompiledExpressions
@@ -683,6 +828,36 @@ public abstract class JXPathContext {
      */
     protected abstract CompiledExpression compilePath(String xpath);
 
+    /**
+     * Compiles a number of XPaths to be evaluated together, see
+     * {@link CompiledBatch}.
+     * @param xpaths to compile
+     * @return CompiledBatch
+     * @since JXPath 1.4
+     */
+    public static CompiledBatch compile(String[] xpaths) {
+        if (compilationContext == null) {
+            compilationContext = JXPathContext.newContext(null);
+        }
+        return compilationContext.compilePaths(xpaths);
+    }
+
+    /**
+     * Compiles a number of XPaths to be evaluated together. Is called by
+     * <code>compile(String[])</code>. The default implementation compiles
+     * each XPath with {@link #compilePath(String)}.
+     * @param xpaths to compile
+     * @return CompiledBatch
+     * @since JXPath 1.4
+     */
+    protected CompiledBatch compilePaths(String[] xpaths) {
+        CompiledExpression[] expressions = new CompiledExpression[xpaths.length];
+        for (int i = 0; i < xpaths.length; i++) {
+            expressions[i] = compilePath(xpaths[i]);
+        }
+        return new BasicCompiledBatch(expressions);
+    }
+
     /**
      * Finds the first object that matches the specified XPath. It is equivalent
      * to <code>getPointer(xpath).getNode()</code>. Note that this method
@@ -714,6 +889,74 @@ public abstract class JXPathContext {
         return list;
     }
 
+    /**
+     * Finds pointers to the <code>k</code> nodes matching the specified
+     * XPath that come first when ordered by a sort key, with keys compared
+     * the way XPath compares values: numbers and strings representing
+     * numbers by value, other keys by string value. For example, the 20
+     * orders with the highest amount are found with
+     * <code>selectTop("order", "amount", 20, true)</code>.
+     * See {@link #selectTop(String, String, int, Comparator)}.
+     *
+     * @param xpath the xpath to be evaluated
+     * @param keyXPath the xpath of the sort key, relative to each node
+     * @param k largest number of nodes to return
+     * @param descending whether the nodes with the highest keys come first
+     * @return a list of at most <code>k</code> Pointers, ordered by key
+     * @since JXPath 1.4
+     */
+    public List selectTop(String xpath, String keyXPath, int k,
+            boolean descending) {
+        return selectTop(xpath, keyXPath, k, descending
+                ? Collections.reverseOrder(TopNodeUtil.XPATH_ORDER) : null);
+    }
+
+    /**
+     * Finds pointers to the <code>k</code> nodes matching the specified
+     * XPath that come first when ordered by a sort key. The key of each node
+     * is the value of <code>keyXPath</code> evaluated relative to the node.
+     * The nodes are read in one pass and only the best <code>k</code> seen
+     * so far are kept, so the whole node set is never held in memory.
+     * <p>
+     * Nodes for which the key path finds no value are left out. Nodes with
+     * equal keys are kept in the order {@link #iteratePointers(String)}
+     * returns them.
+     * </p>
+     *
+     * @param xpath the xpath to be evaluated
+     * @param keyXPath the xpath of the sort key, relative to each node
+     * @param k largest number of nodes to return
+     * @param order compares the keys; <code>null</code> to compare them
+     *        as {@link TopNodeUtil#XPATH_ORDER} does
+     * @return a list of at most <code>k</code> Pointers, ordered by key
+     * @since JXPath 1.4
+     */
+    public List selectTop(String xpath, String keyXPath, int k,
+            Comparator order) {
+        return TopNodeUtil.selectTop(this, xpath, keyXPath, k, order);
+    }
+
+    /**
+     * Finds pointers to all nodes that match the specified XPath, in the
+     * order {@link #iteratePointers(String)} returns them. The nodes are
+     * found as the list is read: getting the i-th pointer evaluates the
+     * XPath up to the i-th node and no further, while
+     * <code>size()</code> finds all of them and releases the contexts used
+     * to find them.
+     * <p>
+     * The list supports fast random access. It is not thread safe until
+     * its size has been asked for; the nodes can then be divided by index
+     * among several threads for further processing.
+     * </p>
+     *
+     * @param xpath the xpath to be evaluated
+     * @return a read-only list of Pointers
+     * @since JXPath 1.4
+     */
+    public List selectPointers(String xpath) {
+        return new LazyList(iteratePointers(xpath));
+    }
+
     /**
      * Evaluates the xpath and returns the resulting object. Primitive
      * types are wrapped into objects.
@@ -731,6 +974,135 @@ public abstract class JXPathContext {
      */
     public abstract Object getValue(String xpath, Class requiredType);
 
+    /**
+     * Evaluates the xpath and converts the result to a double, like
+     * <code>getValue(xpath, double.class)</code> does.
+     * @param xpath to evaluate
+     * @return double
+     * @since JXPath 1.4
+     */
+    public double getDouble(String xpath) {
+        return ((Number) getPrimitiveValue(xpath, double.class)).doubleValue();
+    }
+
+    /**
+     * Evaluates the xpath and converts the result to a long, like
+     * <code>getValue(xpath, long.class)</code> does.
+     * @param xpath to evaluate
+     * @return long
+     * @since JXPath 1.4
+     */
+    public long getLong(String xpath) {
+        return ((Number) getPrimitiveValue(xpath, long.class)).longValue();
+    }
+
+    /**
+     * Evaluates the xpath and converts the result to a boolean, like
+     * <code>getValue(xpath, boolean.class)</code> does.
+     * @param xpath to evaluate
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    public boolean getBoolean(String xpath) {
+        return ((Boolean) getPrimitiveValue(xpath, boolean.class))
+                .booleanValue();
+    }
+
+    /**
+     * Evaluates the xpath and converts the result to a String, like
+     * <code>getValue(xpath, String.class)</code> does.
+     * @param xpath to evaluate
+     * @return String
+     * @since JXPath 1.4
+     */
+    public String getString(String xpath) {
+        return (String) getValue(xpath, String.class);
+    }
+
+    /**
+     * Allocate the array returned by {@link CompiledBatch#getValues} and
+     * {@link #getValues}.
+     * @param length of the array
+     * @param requiredType type of the values, may be <code>null</code>
+     * @return Object[]
+     * @since JXPath 1.4
+     */
+    protected static Object[] newValueArray(int length, Class requiredType) {
+        return (Object[]) Array.newInstance(requiredType == null ? Object.class
+                : TypeUtils.wrapPrimitive(requiredType), length);
+    }
+
+    /**
+     * Evaluates a compiled expression against each of a number of root
+     * beans and returns the values in the order of the roots. Each root is
+     * evaluated in its own context obtained with {@link #bind(Object)}, so
+     * this context serves as a template and must not be reconfigured while
+     * the evaluation is running.
+     * <p>
+     * The roots are divided into batches of <code>batchSize</code>
+     * consecutive roots. If an executor is supplied, tasks are submitted to
+     * it that take the batches no thread has started yet, and the calling
+     * thread takes such batches too, so the batches the executor rejects or
+     * does not get to are evaluated by the calling thread. The calling
+     * thread then only waits for the batches other threads are evaluating,
+     * so the method may be called from a task running in the executor it is
+     * given. With a <code>java.util.concurrent.ForkJoinPool</code>, the
+     * batches are evaluated by fork/join tasks instead.
+     * </p>
+     * <p>
+     * If <code>errors</code> is supplied, a <code>JXPathException</code>
+     * thrown for one root does not prevent the others from being evaluated:
+     * its value is left <code>null</code> and the exception is stored at the
+     * same index of <code>errors</code>. Otherwise, as well as for any other
+     * exception, the exception thrown for the first root that failed is
+     * thrown once all batches are done.
+     * </p>
+     * @param expression to evaluate
+     * @param roots beans to evaluate the expression against
+     * @param requiredType type to convert values to, <code>null</code> to
+     *        leave them as they are
+     * @param executor runs the batches, <code>null</code> to evaluate all of
+     *        them on the calling thread
+     * @param batchSize number of roots evaluated by one task, at least 1
+     * @param errors receives the exceptions thrown, may be <code>null</code>
+     * @return Object[] whose component type is the required type, with a
+     *         primitive type wrapped
+     * @throws IllegalArgumentException if <code>batchSize</code> is not
+     *         positive or <code>errors</code> is supplied and its length
+     *         does not match the number of roots
+     * @since JXPath 1.4
+     */
+    public Object[] getValues(CompiledExpression expression, Collection roots,
+            Class requiredType, Executor executor, int batchSize,
+            JXPathException[] errors) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(
+                "Batch size must be positive: " + batchSize);
+        }
+        Object[] beans = roots.toArray();
+        if (errors != null && errors.length != beans.length) {
+            throw new IllegalArgumentException("Expected an array of "
+                    + beans.length + " errors, got " + errors.length);
+        }
+        Object[] values = newValueArray(beans.length, requiredType);
+        RootBatchUtils.evaluate(this, expression, beans, values,
+            requiredType, executor, batchSize, errors);
+        return values;
+    }
+
+    /**
+     * Evaluates the xpath and converts the result to a primitive type.
+     * A missing value, which is only possible in lenient mode, is converted
+     * as <code>null</code>.
+     * @param xpath to evaluate
+     * @param type primitive type
+     * @return wrapped primitive value
+     */
+    private Object getPrimitiveValue(String xpath, Class type) {
+        Object value = getValue(xpath, type);
+        return value == null ? TypeUtils.convert(null, type) : value;
+    }
+
     /**
      * Modifies the value of the property described by the supplied xpath.
      * Will throw an exception if one of the following conditions occurs:
@@ -794,6 +1166,23 @@ public abstract class JXPathContext {
      */
     public abstract Iterator iterate(String xpath);
 
+    /**
+     * Traverses the xpath and returns an Iterator over a page of the
+     * results found for the path: the results following the first
+     * <code>offset</code> ones, up to <code>limit</code> of them.
+     * Implementations may avoid fetching the results skipped, and stop
+     * looking for results once the page is full.
+     * @param xpath to iterate
+     * @param offset number of results to skip
+     * @param limit largest number of results to return
+     * @return Iterator<Object>
+     * @since JXPath 1.4
+     */
+    public Iterator iterate(String xpath, int offset, int limit) {
+        checkPage(offset, limit);
+        return ValueUtils.page(iterate(xpath), offset, limit);
+    }
+
     /**
      * Traverses the xpath and returns a Pointer. A Pointer provides easy access
      * to a property.
@@ -824,6 +1213,36 @@ public abstract class JXPathContext {
      */
     public abstract Iterator iteratePointers(String xpath);
 
+    /**
+     * Traverses the xpath and returns an Iterator over a page of the
+     * Pointers found: the Pointers following the first <code>offset</code>
+     * ones, up to <code>limit</code> of them. Implementations may avoid
+     * fetching the nodes skipped, and stop looking for nodes once the page
+     * is full.
+     * @param xpath to iterate
+     * @param offset number of Pointers to skip
+     * @param limit largest number of Pointers to return
+     * @return Iterator<Pointer>
+     * @since JXPath 1.4
+     */
+    public Iterator iteratePointers(String xpath, int offset, int limit) {
+        checkPage(offset, limit);
+        return ValueUtils.page(iteratePointers(xpath), offset, limit);
+    }
+
+    /**
+     * Check the bounds of a page of results.
+     * @param offset number of results to skip
+     * @param limit largest number of results to return
+     * @since JXPath 1.4
+     */
+    protected static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page: offset "
+                + offset + ", limit " + limit);
+        }
+    }
+
     /**
      * Install an identity manager that will be used by the context
      * to look up a node by its ID.
@@ -16,24 +16,34 @@
  */
 package org.apache.commons.jxpath;
 
-import java.util.Collections;
 import java.util.Date;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.jxpath.util.ClassLoaderUtil;
 
 /**
  * JXPathIntrospector  maintains a registry of {@link JXPathBeanInfo
  * JXPathBeanInfo} objects for Java classes.
+ * <p>
+ * Explicitly registered classes are kept in concurrent maps. Bean infos
+ * created on demand are cached in a <code>ClassValue</code>, so lookups are
+ * lock-free and cached infos do not keep the classes of redeployed
+ * class loaders from being unloaded.
+ * </p>
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
 public class JXPathIntrospector {
 
-    private static Map byClass = Collections.synchronizedMap(new HashMap());
-    private static Map byInterface = Collections.synchronizedMap(new HashMap());
+    private static Map byClass = new ConcurrentHashMap();
+    private static Map byInterface = new ConcurrentHashMap();
+    private static final ClassValue BEAN_INFOS = new ClassValue() {
+        protected Object computeValue(Class beanClass) {
+            return createBeanInfo(beanClass);
+        }
+    };
 
     static {
         registerAtomicClass(Class.class);
@@ -68,9 +78,7 @@ public class JXPathIntrospector {
      * @param beanClass to register
      */
     public static void registerAtomicClass(Class beanClass) {
-        synchronized (byClass) { 
-            byClass.put(beanClass, new JXPathBasicBeanInfo(beanClass, true));
-        }
+        byClass.put(beanClass, new JXPathBasicBeanInfo(beanClass, true));
     }
 
     /**
@@ -86,14 +94,10 @@ public class JXPathIntrospector {
         JXPathBasicBeanInfo bi =
             new JXPathBasicBeanInfo(beanClass, dynamicPropertyHandlerClass);
         if (beanClass.isInterface()) {
-            synchronized (byInterface) {
-                byInterface.put(beanClass, bi);
-            }
+            byInterface.put(beanClass, bi);
         }
         else {
-            synchronized (byClass) {
-                byClass.put(beanClass, bi);
-            }
+            byClass.put(beanClass, bi);
         }
     }
 
@@ -115,15 +119,22 @@ public class JXPathIntrospector {
     public static JXPathBeanInfo getBeanInfo(Class beanClass) {
         JXPathBeanInfo beanInfo = (JXPathBeanInfo) byClass.get(beanClass);
         if (beanInfo == null) {
-            beanInfo = findDynamicBeanInfo(beanClass);
+            beanInfo = (JXPathBeanInfo) BEAN_INFOS.get(beanClass);
+        }
+        return beanInfo;
+    }
+
+    /**
+     * Create the JXPathBeanInfo for a class that has not been registered.
+     * @param beanClass whose info to create
+     * @return JXPathBeanInfo
+     */
+    private static JXPathBeanInfo createBeanInfo(Class beanClass) {
+        JXPathBeanInfo beanInfo = findDynamicBeanInfo(beanClass);
+        if (beanInfo == null) {
+            beanInfo = findInformant(beanClass);
             if (beanInfo == null) {
-                beanInfo = findInformant(beanClass);
-                if (beanInfo == null) {
-                    beanInfo = new JXPathBasicBeanInfo(beanClass);
-                }
-            }
-            synchronized (byClass) {
-                byClass.put(beanClass, beanInfo);
+                beanInfo = new JXPathBasicBeanInfo(beanClass);
             }
         }
         return beanInfo;
@@ -174,7 +185,7 @@ public class JXPathIntrospector {
      * @param beanClass for which to look for an info provider
      * @return JXPathBeanInfo instance or null if none found
      */
-    private static synchronized JXPathBeanInfo findInformant(Class beanClass) {
+    private static JXPathBeanInfo findInformant(Class beanClass) {
         String name = beanClass.getName() + "XBeanInfo";
         try {
             return (JXPathBeanInfo) instantiate(beanClass, name);
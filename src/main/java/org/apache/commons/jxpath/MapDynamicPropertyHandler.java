@@ -26,7 +26,7 @@ import java.util.Set;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class MapDynamicPropertyHandler implements DynamicPropertyHandler {
+public class MapDynamicPropertyHandler implements ExtendedDynamicPropertyHandler {
 
     public String[] getPropertyNames(Object object) {
         Map map = (Map) object;
@@ -39,6 +39,23 @@ public class MapDynamicPropertyHandler implements DynamicPropertyHandler {
         return names;
     }
 
+    public boolean hasProperty(Object object, String propertyName) {
+        Map map = (Map) object;
+        if (map.containsKey(propertyName)) {
+            return true;
+        }
+        // Property names are the string values of the keys
+        Iterator it = map.keySet().iterator();
+        while (it.hasNext()) {
+            Object key = it.next();
+            if (!(key instanceof String)
+                    && String.valueOf(key).equals(propertyName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Object getProperty(Object object, String propertyName) {
         return ((Map) object).get(propertyName);
     }
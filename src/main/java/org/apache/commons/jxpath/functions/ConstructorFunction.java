@@ -16,6 +16,9 @@
  */
 package org.apache.commons.jxpath.functions;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
@@ -33,14 +36,38 @@ import org.apache.commons.jxpath.util.TypeUtils;
 public class ConstructorFunction implements Function {
     private static final Object[] EMPTY_ARRAY = new Object[0];
 
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType(Object.class, Object[].class);
+
     private Constructor constructor;
 
+    /** Parameter types of the constructor */
+    private Class[] types;
+    /** Whether the ExpressionContext is passed as the first argument */
+    private boolean contextArgument;
+    /** Invokes the constructor with an array of arguments, if it can be bound */
+    private MethodHandle invoker;
+
     /**
      * Create a new ConstructorFunction.
      * @param constructor the constructor to call.
      */
     public ConstructorFunction(Constructor constructor) {
         this.constructor = constructor;
+        types = constructor.getParameterTypes();
+        contextArgument = types.length > 0
+            && ExpressionContext.class.isAssignableFrom(types[0]);
+        try {
+            invoker = MethodHandles.publicLookup()
+                    .unreflectConstructor(constructor)
+                    .asFixedArity()
+                    .asSpreader(Object[].class, types.length)
+                    .asType(INVOKER_TYPE);
+        }
+        catch (IllegalAccessException ex) {
+            // Leave it to reflection to report the problem
+            invoker = null;
+        }
     }
 
     /**
@@ -55,12 +82,7 @@ public class ConstructorFunction implements Function {
             if (parameters == null) {
                 parameters = EMPTY_ARRAY;
             }
-            int pi = 0;
-            Class[] types = constructor.getParameterTypes();
-            if (types.length > 0
-                && ExpressionContext.class.isAssignableFrom(types[0])) {
-                pi = 1;
-            }
+            int pi = contextArgument ? 1 : 0;
             args = new Object[parameters.length + pi];
             if (pi == 1) {
                 args[0] = context;
@@ -68,6 +90,9 @@ public class ConstructorFunction implements Function {
             for (int i = 0; i < parameters.length; i++) {
                 args[i + pi] = TypeUtils.convert(parameters[i], types[i + pi]);
             }
+            if (invoker != null) {
+                return (Object) invoker.invokeExact(args);
+            }
             return constructor.newInstance(args);
         }
         catch (Throwable ex) {
@@ -16,9 +16,13 @@
  */
 package org.apache.commons.jxpath.functions;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Arrays;
 
 import org.apache.commons.jxpath.ExpressionContext;
 import org.apache.commons.jxpath.Function;
@@ -34,63 +38,83 @@ import org.apache.commons.jxpath.util.ValueUtils;
  */
 public class MethodFunction implements Function {
 
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType(Object.class, Object[].class);
+
     private Method method;
     private static final Object[] EMPTY_ARRAY = new Object[0];
 
+    /** Argument types: the target type first for an instance method */
+    private Class[] types;
+    /** Argument receiving the ExpressionContext, -1 if none */
+    private int contextIndex = -1;
+    /** Invokes the method with an array of arguments, if it can be bound */
+    private MethodHandle invoker;
+
     /**
      * Create a new MethodFunction.
      * @param method implementing Method
      */
     public MethodFunction(Method method) {
         this.method = ValueUtils.getAccessibleMethod(method);
+        if (this.method != null) {
+            prepare();
+        }
+    }
+
+    /**
+     * Work out once how arguments are passed to the method.
+     */
+    private void prepare() {
+        Class[] parameterTypes = method.getParameterTypes();
+        int ti = 0;
+        if (Modifier.isStatic(method.getModifiers())) {
+            types = parameterTypes;
+        }
+        else {
+            types = new Class[parameterTypes.length + 1];
+            types[0] = method.getDeclaringClass();
+            System.arraycopy(parameterTypes, 0, types, 1, parameterTypes.length);
+            ti = 1;
+        }
+        if (parameterTypes.length >= 1
+            && ExpressionContext.class.isAssignableFrom(parameterTypes[0])) {
+            contextIndex = ti;
+        }
+        try {
+            invoker = MethodHandles.publicLookup().unreflect(method)
+                    .asFixedArity()
+                    .asSpreader(Object[].class, types.length)
+                    .asType(INVOKER_TYPE);
+        }
+        catch (IllegalAccessException ex) {
+            // Leave it to reflection to report the problem
+            invoker = null;
+        }
     }
 
     public Object invoke(ExpressionContext context, Object[] parameters) {
         try {
-            Object target;
-            Object[] args;
-            if (Modifier.isStatic(method.getModifiers())) {
-                target = null;
-                if (parameters == null) {
-                    parameters = EMPTY_ARRAY;
-                }
-                int pi = 0;
-                Class[] types = method.getParameterTypes();
-                if (types.length >= 1
-                    && ExpressionContext.class.isAssignableFrom(types[0])) {
-                    pi = 1;
-                }
-                args = new Object[parameters.length + pi];
-                if (pi == 1) {
-                    args[0] = context;
-                }
-                for (int i = 0; i < parameters.length; i++) {
-                    args[i + pi] =
-                        TypeUtils.convert(parameters[i], types[i + pi]);
-                }
+            if (parameters == null) {
+                parameters = EMPTY_ARRAY;
             }
-            else {
-                int pi = 0;
-                Class[] types = method.getParameterTypes();
-                if (types.length >= 1
-                    && ExpressionContext.class.isAssignableFrom(types[0])) {
-                    pi = 1;
-                }
-                target =
-                    TypeUtils.convert(
-                        parameters[0],
-                        method.getDeclaringClass());
-                args = new Object[parameters.length - 1 + pi];
-                if (pi == 1) {
-                    args[0] = context;
-                }
-                for (int i = 1; i < parameters.length; i++) {
-                    args[pi + i - 1] =
-                        TypeUtils.convert(parameters[i], types[i + pi - 1]);
-                }
+            Object[] args = new Object[types.length];
+            if (parameters.length + (contextIndex == -1 ? 0 : 1) != args.length) {
+                throw new IllegalArgumentException("wrong number of arguments");
+            }
+            int pi = 0;
+            for (int i = 0; i < args.length; i++) {
+                args[i] = i == contextIndex ? context
+                        : TypeUtils.convert(parameters[pi++], types[i]);
             }
 
-            return method.invoke(target, args);
+            if (invoker != null) {
+                return (Object) invoker.invokeExact(args);
+            }
+            if (Modifier.isStatic(method.getModifiers())) {
+                return method.invoke(null, args);
+            }
+            return method.invoke(args[0], Arrays.copyOfRange(args, 1, args.length));
         }
         catch (Throwable ex) {
             if (ex instanceof InvocationTargetException) {
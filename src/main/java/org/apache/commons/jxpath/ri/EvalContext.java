@@ -161,6 +161,102 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
         hasPerformedIteratorStep = true;
     }
 
+    /**
+     * Skips nodes this context would return as an Iterator, without
+     * fetching them. Unless the nodes need to be sorted, they are not
+     * collected, and the contexts that allow it jump to the first node
+     * not skipped within each set.
+     * @param count number of nodes to skip
+     * @return number of nodes skipped, less than <code>count</code> if the
+     *         context has run out of nodes
+     * @since JXPath 1.4
+     */
+    public int skip(int count) {
+        int skipped = 0;
+        if (pointerIterator != null || getDocumentOrder() != 0) {
+            while (skipped < count && hasNext()) {
+                next();
+                skipped++;
+            }
+            return skipped;
+        }
+        if (hasPerformedIteratorStep) {
+            if (done) {
+                return 0;
+            }
+            // The current node has been found, but not returned yet
+            hasPerformedIteratorStep = false;
+            skipped++;
+        }
+        while (skipped < count) {
+            if (position != 0) {
+                skipped += skipNodes(count - skipped);
+                if (skipped == count) {
+                    break;
+                }
+            }
+            // The current set has run out of nodes
+            boolean found = false;
+            while (nextSet()) {
+                if (nextNode()) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                done = true;
+                hasPerformedIteratorStep = true;
+                break;
+            }
+            skipped++;
+        }
+        return skipped;
+    }
+
+    /**
+     * Moves forward by up to <code>count</code> nodes within the current
+     * set. Contexts that can move to a position directly should override
+     * this method, typically with {@link #skipNodesByPosition(int)}.
+     * @param count number of nodes to move by
+     * @return number of nodes moved by, less than <code>count</code> if the
+     *         set has run out of nodes
+     * @since JXPath 1.4
+     */
+    protected int skipNodes(int count) {
+        return stepNodes(count);
+    }
+
+    /**
+     * Moves forward by up to <code>count</code> nodes within the current
+     * set by setting the position directly. If the set ends before that
+     * position, goes back and moves to its end one node at a time.
+     * @param count number of nodes to move by
+     * @return number of nodes moved by
+     * @since JXPath 1.4
+     */
+    protected final int skipNodesByPosition(int count) {
+        int start = getCurrentPosition();
+        if (setPosition(start + count)) {
+            return count;
+        }
+        setPosition(start);
+        return stepNodes(count);
+    }
+
+    /**
+     * Moves forward by up to <code>count</code> nodes within the current
+     * set, one node at a time.
+     * @param count number of nodes to move by
+     * @return number of nodes moved by
+     */
+    private int stepNodes(int count) {
+        int skipped = 0;
+        while (skipped < count && nextNode()) {
+            skipped++;
+        }
+        return skipped;
+    }
+
     /**
      * Operation is not supported
      * @throws UnsupportedOperationException
@@ -175,6 +271,7 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
      * @return whether the Iterator was constructed
      */
     private boolean constructIterator() {
+        expectAllNodes();
         HashSet set = new HashSet();
         ArrayList list = new ArrayList();
         while (nextSet()) {
@@ -249,6 +346,7 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
                     + "should not request pointer list while "
                     + "iterating over an EvalContext");
         }
+        expectAllNodes();
         BasicNodeSet set = new BasicNodeSet();
         while (nextSet()) {
             while (nextNode()) {
@@ -287,6 +385,18 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
         return rootContext;
     }
 
+    /**
+     * Announces that all the nodes of this context, for all the nodes of the
+     * parent context, are going to be read. A context may then find its nodes
+     * ahead of time, for example with parallel tasks, rather than one at a
+     * time as they are requested. Contexts that read all the nodes of their
+     * parent context to produce their own pass the announcement on. Does
+     * nothing by default.
+     * @since JXPath 1.4
+     */
+    public void expectAllNodes() {
+    }
+
     /**
      * Sets current position = 0, which is the pre-iteration state.
      */
@@ -294,6 +404,34 @@ public abstract class EvalContext implements ExpressionContext, Iterator {
         position = 0;
     }
 
+    /**
+     * Brings this context back to the state it was in when it was created
+     * and drops the nodes it has visited, so that it can be evaluated again
+     * once the context it reads from has been rewound or replaced. Unlike
+     * {@link #reset()}, this also restarts the iteration over the sets of
+     * the parent context. Subclasses that keep state of their own must
+     * override this method to support it.
+     * @return <code>false</code> if this context cannot be rewound
+     * @since JXPath 1.4
+     */
+    public boolean rewind() {
+        return false;
+    }
+
+    /**
+     * Rewinds the iteration state kept by EvalContext itself. For use by
+     * implementations of {@link #rewind()}.
+     * @since JXPath 1.4
+     */
+    protected void rewindIteration() {
+        position = 0;
+        startedSetIteration = false;
+        done = false;
+        hasPerformedIteratorStep = false;
+        pointerIterator = null;
+        rootContext = null;
+    }
+
     /**
      * Get the current position.
      * @return int position.
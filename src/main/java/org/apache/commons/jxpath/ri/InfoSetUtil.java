@@ -118,7 +118,7 @@ public class InfoSetUtil {
             }
         }
         if (object instanceof NodePointer) {
-            return doubleValue(((NodePointer) object).getValue());
+            return ((NodePointer) object).getDoubleValue();
         }
         if (object instanceof EvalContext) {
             EvalContext ctx = (EvalContext) object;
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import org.apache.commons.jxpath.BasicCompiledBatch;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.ri.compiler.Expression;
+import org.apache.commons.jxpath.ri.compiler.PathTrie;
+
+/**
+ * RI of CompiledBatch. The location paths of the batch are arranged in a
+ * {@link PathTrie} when the batch is compiled, so that their common leading
+ * steps are walked once per evaluation.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class JXPathCompiledBatch extends BasicCompiledBatch {
+    private final JXPathCompiledExpression[] expressions;
+    private final PathTrie pathTrie;
+
+    /**
+     * Create a new JXPathCompiledBatch.
+     * @param expressions compiled
+     */
+    public JXPathCompiledBatch(JXPathCompiledExpression[] expressions) {
+        super(expressions);
+        this.expressions = expressions.clone();
+        Expression[] compiled = new Expression[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            compiled[i] = expressions[i].getExpression();
+        }
+        pathTrie = new PathTrie(compiled);
+    }
+
+    public Object[] getValues(JXPathContext context, Class requiredType,
+            JXPathException[] errors) {
+        checkErrors(errors);
+        if (!(context instanceof JXPathContextReferenceImpl)) {
+            return super.getValues(context, requiredType, errors);
+        }
+        return ((JXPathContextReferenceImpl) context).getValues(expressions,
+            pathTrie, requiredType, errors);
+    }
+}
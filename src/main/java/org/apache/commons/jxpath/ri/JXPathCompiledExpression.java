@@ -74,6 +74,50 @@ public class JXPathCompiledExpression implements CompiledExpression {
                     getValue(xpath, expression, requiredType);
     }
 
+    /**
+     * Evaluates the xpath and converts the result to a double.
+     * @param context to evaluate
+     * @return double
+     * @since JXPath 1.4
+     */
+    public double getDouble(JXPathContext context) {
+        return ((JXPathContextReferenceImpl) context).
+                    getDouble(xpath, expression);
+    }
+
+    /**
+     * Evaluates the xpath and converts the result to a long.
+     * @param context to evaluate
+     * @return long
+     * @since JXPath 1.4
+     */
+    public long getLong(JXPathContext context) {
+        return ((JXPathContextReferenceImpl) context).
+                    getLong(xpath, expression);
+    }
+
+    /**
+     * Evaluates the xpath and converts the result to a boolean.
+     * @param context to evaluate
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    public boolean getBoolean(JXPathContext context) {
+        return ((JXPathContextReferenceImpl) context).
+                    getBoolean(xpath, expression);
+    }
+
+    /**
+     * Evaluates the xpath and converts the result to a String.
+     * @param context to evaluate
+     * @return String
+     * @since JXPath 1.4
+     */
+    public String getString(JXPathContext context) {
+        return ((JXPathContextReferenceImpl) context).
+                    getString(xpath, expression);
+    }
+
     public void setValue(JXPathContext context, Object value) {
         ((JXPathContextReferenceImpl) context).
                     setValue(xpath, expression, value);
@@ -94,6 +138,21 @@ public class JXPathCompiledExpression implements CompiledExpression {
                     iterate(xpath, expression);
     }
 
+    /**
+     * Traverses the xpath and returns an Iterator over a page of the
+     * results found for the path: the results following the first
+     * <code>offset</code> ones, up to <code>limit</code> of them.
+     * @param context base
+     * @param offset number of results to skip
+     * @param limit largest number of results to return
+     * @return Iterator
+     * @since JXPath 1.4
+     */
+    public Iterator iterate(JXPathContext context, int offset, int limit) {
+        return ((JXPathContextReferenceImpl) context).
+                    iterate(xpath, expression, offset, limit);
+    }
+
     public Pointer getPointer(JXPathContext context, String xpath) {
         return ((JXPathContextReferenceImpl) context).
                     getPointer(xpath, expression);
@@ -104,6 +163,22 @@ public class JXPathCompiledExpression implements CompiledExpression {
                     iteratePointers(xpath, expression);
     }
 
+    /**
+     * Traverses the xpath and returns an Iterator over a page of the
+     * Pointers found: the Pointers following the first <code>offset</code>
+     * ones, up to <code>limit</code> of them.
+     * @param context to iterate
+     * @param offset number of Pointers to skip
+     * @param limit largest number of Pointers to return
+     * @return Iterator<Pointer>
+     * @since JXPath 1.4
+     */
+    public Iterator iteratePointers(JXPathContext context, int offset,
+            int limit) {
+        return ((JXPathContextReferenceImpl) context).
+                    iteratePointers(xpath, expression, offset, limit);
+    }
+
     public void removePath(JXPathContext context) {
         ((JXPathContextReferenceImpl) context).removePath(xpath, expression);
     }
@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Vector;
 import java.util.Map.Entry;
 
+import org.apache.commons.jxpath.CompiledBatch;
 import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.ExceptionHandler;
 import org.apache.commons.jxpath.Function;
@@ -43,7 +44,9 @@ import org.apache.commons.jxpath.ri.axes.RootContext;
 import org.apache.commons.jxpath.ri.compiler.Expression;
 import org.apache.commons.jxpath.ri.compiler.LocationPath;
 import org.apache.commons.jxpath.ri.compiler.Path;
+import org.apache.commons.jxpath.ri.compiler.PathTrie;
 import org.apache.commons.jxpath.ri.compiler.TreeCompiler;
+import org.apache.commons.jxpath.ri.model.ExtendedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 import org.apache.commons.jxpath.ri.model.VariablePointerFactory;
@@ -73,7 +76,8 @@ public class JXPathContextReferenceImpl extends JXPathContext {
     private static Map compiled = new HashMap();
     private static int cleanupCount = 0;
 
-    private static NodePointerFactory[] nodeFactoryArray = null;
+    private static volatile NodePointerFactory[] nodeFactoryArray = null;
+    private static volatile ClassValue nodeFactoryDispatch = null;
     // The frequency of the cache cleanup
     private static final int CLEANUP_THRESHOLD = 500;
     private static final Vector nodeFactories = new Vector();
@@ -119,17 +123,53 @@ public class JXPathContextReferenceImpl extends JXPathContext {
      */
     private static synchronized void createNodeFactoryArray() {
         if (nodeFactoryArray == null) {
-            nodeFactoryArray =
+            final NodePointerFactory[] factories =
                 (NodePointerFactory[]) nodeFactories.
                     toArray(new NodePointerFactory[nodeFactories.size()]);
-            Arrays.sort(nodeFactoryArray, new Comparator() {
+            Arrays.sort(factories, new Comparator() {
                 public int compare(Object a, Object b) {
                     int orderA = ((NodePointerFactory) a).getOrder();
                     int orderB = ((NodePointerFactory) b).getOrder();
                     return orderA - orderB;
                 }
             });
+            nodeFactoryArray = factories;
+            nodeFactoryDispatch = new ClassValue() {
+                protected Object computeValue(Class type) {
+                    return selectNodePointerFactories(factories, type);
+                }
+            };
+        }
+    }
+
+    /**
+     * Select the factories that need to be queried, in order, for an object
+     * of the specified class.  Factories that rule the class out by their
+     * applicability hint are skipped and the search stops at the first one
+     * that accepts every object of that class.
+     * @param factories all factories, sorted
+     * @param type class of the object
+     * @return NodePointerFactory[]
+     */
+    private static NodePointerFactory[] selectNodePointerFactories(
+            NodePointerFactory[] factories, Class type) {
+        ArrayList selected = new ArrayList();
+        for (int i = 0; i < factories.length; i++) {
+            NodePointerFactory factory = factories[i];
+            int hint = 0;
+            if (factory instanceof ExtendedNodePointerFactory) {
+                hint = ((ExtendedNodePointerFactory) factory)
+                        .getApplicabilityHint(type);
+            }
+            if (hint >= 0) {
+                selected.add(factory);
+                if (hint > 0) {
+                    break;
+                }
+            }
         }
+        return (NodePointerFactory[]) selected.toArray(
+            new NodePointerFactory[selected.size()]);
     }
 
     /**
@@ -142,6 +182,7 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         synchronized (nodeFactories) {
             nodeFactories.add(factory);
             nodeFactoryArray = null;
+            nodeFactoryDispatch = null;
         }
     }
 
@@ -153,6 +194,26 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         return nodeFactoryArray;
     }
 
+    /**
+     * Get the registered NodePointerFactories that may create a pointer
+     * for an object of the specified class, in the order they should be
+     * queried.  The selection is computed once per class and discarded
+     * when a factory is added.
+     * @param type class of the object
+     * @return NodePointerFactory[]
+     * @since JXPath 1.4
+     */
+    public static NodePointerFactory[] getNodePointerFactories(Class type) {
+        ClassValue dispatch = nodeFactoryDispatch;
+        if (dispatch == null) {
+            synchronized (nodeFactories) {
+                createNodeFactoryArray();
+                dispatch = nodeFactoryDispatch;
+            }
+        }
+        return (NodePointerFactory[]) dispatch.get(type);
+    }
+
     /** Namespace resolver */
     protected NamespaceResolver namespaceResolver;
 
@@ -179,8 +240,10 @@ public class JXPathContextReferenceImpl extends JXPathContext {
             Object contextBean, Pointer contextPointer) {
         super(parentContext, contextBean);
 
-        synchronized (nodeFactories) {
-            createNodeFactoryArray();
+        if (nodeFactoryArray == null) {
+            synchronized (nodeFactories) {
+                createNodeFactoryArray();
+            }
         }
 
         if (contextPointer != null) {
@@ -209,6 +272,22 @@ public class JXPathContextReferenceImpl extends JXPathContext {
                 .setNamespaceContextPointer((NodePointer) this.contextPointer);
     }
 
+    /**
+     * Create a new JXPathContextReferenceImpl bound to a bean, sharing the
+     * namespace resolver and variables of its template.
+     * @param contextBean Object
+     * @param template context to share
+     */
+    private JXPathContextReferenceImpl(Object contextBean,
+            JXPathContextReferenceImpl template) {
+        super(template, contextBean);
+        contextPointer = NodePointer.newNodePointer(new QName(null, "root"),
+                contextBean, getLocale());
+        rootPointer = contextPointer;
+        namespaceResolver = template.getNamespaceResolver();
+        vars = template.getVariables();
+    }
+
     /**
      * Returns a static instance of TreeCompiler.
      *
@@ -223,6 +302,15 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         return new JXPathCompiledExpression(xpath, compileExpression(xpath));
     }
 
+    protected CompiledBatch compilePaths(String[] xpaths) {
+        JXPathCompiledExpression[] expressions =
+            new JXPathCompiledExpression[xpaths.length];
+        for (int i = 0; i < xpaths.length; i++) {
+            expressions[i] = (JXPathCompiledExpression) compilePath(xpaths[i]);
+        }
+        return new JXPathCompiledBatch(expressions);
+    }
+
     /**
      * Compile the given expression.
      * @param xpath to compile
@@ -369,15 +457,24 @@ public class JXPathContextReferenceImpl extends JXPathContext {
             }
         }
         if (result instanceof NodePointer) {
-            result = ((NodePointer) result).getValuePointer();
-            if (!isLenient()) {
-                NodePointer.verify((NodePointer) result);
-            }
-            result = ((NodePointer) result).getValue();
+            result = getNodeValue((NodePointer) result);
         }
         return result;
     }
 
+    /**
+     * Get the value of a node found by getValue().
+     * @param pointer node found
+     * @return Object
+     */
+    private Object getNodeValue(NodePointer pointer) {
+        pointer = pointer.getValuePointer();
+        if (!isLenient()) {
+            NodePointer.verify(pointer);
+        }
+        return pointer.getValue();
+    }
+
     /**
      * Calls getValue(xpath), converts the result to the required type
      * and returns the result of the conversion.
@@ -398,7 +495,17 @@ public class JXPathContextReferenceImpl extends JXPathContext {
      * @return Object
      */
     public Object getValue(String xpath, Expression expr, Class requiredType) {
-        Object value = getValue(xpath, expr);
+        return convertValue(xpath, getValue(xpath, expr), requiredType);
+    }
+
+    /**
+     * Convert the value of an xpath to the required type.
+     * @param xpath expression
+     * @param value to convert
+     * @param requiredType Class
+     * @return Object
+     */
+    private Object convertValue(String xpath, Object value, Class requiredType) {
         if (value != null && requiredType != null) {
             if (!TypeUtils.canConvert(value, requiredType)) {
                 throw new JXPathTypeConversionException(
@@ -414,6 +521,124 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         return value;
     }
 
+    /**
+     * Evaluates a batch of compiled expressions, see
+     * {@link JXPathCompiledBatch}. Location paths are searched together: the
+     * leading child, attribute and self steps that several of them have in
+     * common are walked only once.
+     * @param expressions to evaluate
+     * @param trie the location paths among the expressions
+     * @param requiredType type to convert values to, may be <code>null</code>
+     * @param errors receives the exceptions thrown, may be <code>null</code>
+     * @return Object[]
+     */
+    public Object[] getValues(JXPathCompiledExpression[] expressions,
+            PathTrie trie, Class requiredType, JXPathException[] errors) {
+        NodePointer[] found = trie.search(getEvalContext());
+        Object[] values = newValueArray(expressions.length, requiredType);
+        for (int i = 0; i < expressions.length; i++) {
+            JXPathCompiledExpression expression = expressions[i];
+            String xpath = expression.getXPath();
+            try {
+                Object value = found[i] == null
+                        ? getValue(xpath, expression.getExpression())
+                        : getNodeValue(found[i]);
+                values[i] = convertValue(xpath, value, requiredType);
+            }
+            catch (JXPathException ex) {
+                if (errors == null) {
+                    throw ex;
+                }
+                errors[i] = ex;
+            }
+        }
+        return values;
+    }
+
+    public double getDouble(String xpath) {
+        return getDouble(xpath, compileExpression(xpath));
+    }
+
+    /**
+     * Evaluates the expression and converts the result to a double.
+     * Numeric expressions are evaluated without boxing.
+     * @param xpath expression
+     * @param expr compiled Expression
+     * @return double
+     */
+    public double getDouble(String xpath, Expression expr) {
+        if (expr.isNumberValued()) {
+            return expr.computeDouble(getEvalContext());
+        }
+        return ((Number) getPrimitiveValue(xpath, expr, double.class))
+                .doubleValue();
+    }
+
+    public long getLong(String xpath) {
+        return getLong(xpath, compileExpression(xpath));
+    }
+
+    /**
+     * Evaluates the expression and converts the result to a long.
+     * Numeric expressions are evaluated without boxing.
+     * @param xpath expression
+     * @param expr compiled Expression
+     * @return long
+     */
+    public long getLong(String xpath, Expression expr) {
+        if (expr.isNumberValued()) {
+            return (long) expr.computeDouble(getEvalContext());
+        }
+        return ((Number) getPrimitiveValue(xpath, expr, long.class))
+                .longValue();
+    }
+
+    public boolean getBoolean(String xpath) {
+        return getBoolean(xpath, compileExpression(xpath));
+    }
+
+    /**
+     * Evaluates the expression and converts the result to a boolean.
+     * Logical expressions are evaluated without boxing.
+     * @param xpath expression
+     * @param expr compiled Expression
+     * @return boolean
+     */
+    public boolean getBoolean(String xpath, Expression expr) {
+        if (expr.isBooleanValued()) {
+            return expr.computeBoolean(getEvalContext());
+        }
+        return ((Boolean) getPrimitiveValue(xpath, expr, boolean.class))
+                .booleanValue();
+    }
+
+    public String getString(String xpath) {
+        return getString(xpath, compileExpression(xpath));
+    }
+
+    /**
+     * Evaluates the expression and converts the result to a String.
+     * @param xpath expression
+     * @param expr compiled Expression
+     * @return String
+     */
+    public String getString(String xpath, Expression expr) {
+        return (String) getValue(xpath, expr, String.class);
+    }
+
+    /**
+     * Evaluates the expression and converts the result to a primitive type.
+     * @param xpath expression
+     * @param expr compiled Expression
+     * @param type primitive type
+     * @return wrapped primitive value
+     */
+    private Object getPrimitiveValue(String xpath, Expression expr,
+            Class type) {
+        Object value = getValue(xpath, expr, type);
+        return value == null ? TypeUtils.convert(null, type) : value;
+    }
+
     /**
      * Traverses the xpath and returns a Iterator of all results found
      * for the path. If the xpath matches no properties
@@ -437,6 +662,26 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         return expr.iterate(getEvalContext());
     }
 
+    public Iterator iterate(String xpath, int offset, int limit) {
+        return iterate(xpath, compileExpression(xpath), offset, limit);
+    }
+
+    /**
+     * Traverses the xpath and returns an Iterator over a page of the
+     * results found for the path. The results skipped are not fetched,
+     * and no more results are looked for once the page is full.
+     * @param xpath expression
+     * @param expr compiled Expression
+     * @param offset number of results to skip
+     * @param limit largest number of results to return
+     * @return Iterator
+     */
+    public Iterator iterate(String xpath, Expression expr, int offset,
+            int limit) {
+        checkPage(offset, limit);
+        return expr.iterate(getEvalContext(), offset, limit);
+    }
+
     public Pointer getPointer(String xpath) {
         return getPointer(xpath, compileExpression(xpath));
     }
@@ -618,6 +863,26 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         return expr.iteratePointers(getEvalContext());
     }
 
+    public Iterator iteratePointers(String xpath, int offset, int limit) {
+        return iteratePointers(xpath, compileExpression(xpath), offset, limit);
+    }
+
+    /**
+     * Traverses the xpath and returns an Iterator over a page of the
+     * Pointers found. The nodes skipped are not fetched, and no more nodes
+     * are looked for once the page is full.
+     * @param xpath expression
+     * @param expr compiled Expression
+     * @param offset number of Pointers to skip
+     * @param limit largest number of Pointers to return
+     * @return Iterator
+     */
+    public Iterator iteratePointers(String xpath, Expression expr, int offset,
+            int limit) {
+        checkPage(offset, limit);
+        return expr.iteratePointers(getEvalContext(), offset, limit);
+    }
+
     public void removePath(String xpath) {
         removePath(xpath, compileExpression(xpath));
     }
@@ -674,6 +939,21 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the root pointer of the new context is created. It shares the
+     * namespace resolver of this context, sealing it, and its variables:
+     * variables declared on either context are declared on both. Prefixes
+     * that are not registered are resolved against the namespace context
+     * pointer of this context. Registering a namespace on either context
+     * afterwards gives that context registrations of its own.
+     * </p>
+     */
+    public JXPathContext bind(Object contextBean) {
+        return new JXPathContextReferenceImpl(contextBean, this);
+    }
+
     public JXPathContext getRelativeContext(Pointer pointer) {
         Object contextBean = pointer.getNode();
         if (contextBean == null) {
@@ -789,6 +1069,17 @@ public class JXPathContextReferenceImpl extends JXPathContext {
         return namespaceResolver;
     }
 
+    /**
+     * Get the namespace resolver currently in use without sealing it.
+     * The returned resolver is replaced, not modified, once it has been
+     * sealed.
+     * @return NamespaceResolver
+     * @since JXPath 1.4
+     */
+    public NamespaceResolver getCurrentNamespaceResolver() {
+        return namespaceResolver;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -18,6 +18,8 @@ package org.apache.commons.jxpath.ri;
 
 import java.io.Serializable;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.model.NodeIterator;
@@ -25,6 +27,18 @@ import org.apache.commons.jxpath.ri.model.NodePointer;
 
 /**
  * Namespace resolver for {@link JXPathContextReferenceImpl}.
+ * <p>
+ * Registered namespaces are kept in copy-on-write tables: registration
+ * replaces the tables rather than modifying them, so lookups are lock-free
+ * reads. Once {@link #seal() sealed}, a resolver never changes; a child
+ * created over a sealed parent shares the parent's tables instead of
+ * delegating each lookup to it.
+ * </p>
+ * <p>
+ * Values derived from the namespace URI of a prefix, such as bound name
+ * tests, can be cached in the {@link #getBindingTable(String) binding
+ * tables} of a resolver.
+ * </p>
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
@@ -34,13 +48,36 @@ public class NamespaceResolver implements Cloneable, Serializable {
 
     /** Parent NamespaceResolver */
     protected final NamespaceResolver parent;
-    /** namespace map */
-    protected HashMap namespaceMap = new HashMap();
-    /** reverse lookup map */
-    protected HashMap reverseMap = new HashMap();
+    /** namespace map; replaced, never modified, once published */
+    protected volatile HashMap namespaceMap = new HashMap();
+    /** reverse lookup map; replaced, never modified, once published */
+    protected volatile HashMap reverseMap = new HashMap();
     /** pointer */
-    protected NodePointer pointer;
-    private boolean sealed;
+    protected volatile NodePointer pointer;
+    private volatile boolean sealed;
+    private volatile int modCount;
+    /** whether the maps already include the entries of the parent */
+    private final boolean inherited;
+    /** bindings of registered prefixes; replaced with the maps */
+    private transient volatile Map registeredBindings;
+    /** bindings of other prefixes for the current state */
+    private transient volatile BindingTable bindings;
+
+    /**
+     * Bindings valid for one state of a resolver.
+     */
+    private static final class BindingTable {
+        private final int state;
+        private final Map table = new ConcurrentHashMap();
+
+        /**
+         * Create a new BindingTable.
+         * @param state of the resolver
+         */
+        private BindingTable(int state) {
+            this.state = state;
+        }
+    }
 
     /**
      * Find the namespace prefix for the specified namespace URI and NodePointer.
@@ -81,6 +118,15 @@ public class NamespaceResolver implements Cloneable, Serializable {
      */
     public NamespaceResolver(NamespaceResolver parent) {
         this.parent = parent;
+        if (parent != null && parent.isSealed()) {
+            namespaceMap = parent.namespaceMap;
+            reverseMap = parent.reverseMap;
+            registeredBindings = parent.getRegisteredBindings();
+            inherited = true;
+        }
+        else {
+            inherited = false;
+        }
     }
 
     /**
@@ -94,16 +140,25 @@ public class NamespaceResolver implements Cloneable, Serializable {
             throw new IllegalStateException(
                     "Cannot register namespaces on a sealed NamespaceResolver");
         }
-        namespaceMap.put(prefix, namespaceURI);
-        reverseMap.put(namespaceURI, prefix);
+        HashMap newNamespaceMap = (HashMap) namespaceMap.clone();
+        newNamespaceMap.put(prefix, namespaceURI);
+        HashMap newReverseMap = (HashMap) reverseMap.clone();
+        newReverseMap.put(namespaceURI, prefix);
+        // replaced before the maps, so that readers of the new maps never
+        // see the bindings of the old ones
+        registeredBindings = new ConcurrentHashMap();
+        namespaceMap = newNamespaceMap;
+        reverseMap = newReverseMap;
+        modCount++;
     }
 
     /**
      * Register a namespace for the expression context.
      * @param pointer the Pointer to set.
      */
-    public void setNamespaceContextPointer(NodePointer pointer) {
+    public synchronized void setNamespaceContextPointer(NodePointer pointer) {
         this.pointer = pointer;
+        modCount++;
     }
 
     /**
@@ -127,8 +182,9 @@ public class NamespaceResolver implements Cloneable, Serializable {
      * @param prefix The namespace prefix to look up
      * @return namespace URI or null if the prefix is undefined.
      */
-    public synchronized String getNamespaceURI(String prefix) {
+    public String getNamespaceURI(String prefix) {
         String uri = getExternallyRegisteredNamespaceURI(prefix);
+        NodePointer pointer = this.pointer;
         return uri == null && pointer != null ? pointer.getNamespaceURI(prefix)
                 : uri;
     }
@@ -140,10 +196,10 @@ public class NamespaceResolver implements Cloneable, Serializable {
      * @return namespace URI or null if the prefix is undefined.
      * @since JXPath 1.3
      */
-     protected synchronized String getExternallyRegisteredNamespaceURI(
+     protected String getExternallyRegisteredNamespaceURI(
             String prefix) {
         String uri = (String) namespaceMap.get(prefix);
-        return uri == null && parent != null ? parent
+        return uri == null && parent != null && !inherited ? parent
                 .getExternallyRegisteredNamespaceURI(prefix) : uri;
     }
 
@@ -152,8 +208,9 @@ public class NamespaceResolver implements Cloneable, Serializable {
      * @param namespaceURI the ns URI to check.
      * @return String prefix
      */
-    public synchronized String getPrefix(String namespaceURI) {
+    public String getPrefix(String namespaceURI) {
         String prefix = getExternallyRegisteredPrefix(namespaceURI);
+        NodePointer pointer = this.pointer;
         return prefix == null && pointer != null ? getPrefix(pointer,
                 namespaceURI) : prefix;
     }
@@ -164,12 +221,64 @@ public class NamespaceResolver implements Cloneable, Serializable {
      * @return String prefix if found.
      * @since JXPath 1.3
      */
-    protected synchronized String getExternallyRegisteredPrefix(String namespaceURI) {
+    protected String getExternallyRegisteredPrefix(String namespaceURI) {
         String prefix = (String) reverseMap.get(namespaceURI);
-        return prefix == null && parent != null ? parent
+        return prefix == null && parent != null && !inherited ? parent
                 .getExternallyRegisteredPrefix(namespaceURI) : prefix;
     }
 
+    /**
+     * Get a table in which to cache values derived from the namespace URI
+     * of the specified prefix, such as bound name tests. The table is
+     * replaced once the prefix may resolve differently: when a namespace is
+     * registered or the namespace context pointer is set, on this resolver
+     * or on an unsealed parent. Prefixes registered on this resolver or on
+     * a sealed ancestor share one table with every resolver that inherits
+     * the same registrations.
+     * @param prefix namespace prefix
+     * @return Map
+     * @since JXPath 1.4
+     */
+    public Map getBindingTable(String prefix) {
+        if ((parent == null || inherited) && namespaceMap.get(prefix) != null) {
+            return getRegisteredBindings();
+        }
+        int state = getState();
+        BindingTable current = bindings;
+        if (current == null || current.state != state) {
+            current = new BindingTable(state);
+            bindings = current;
+        }
+        return current.table;
+    }
+
+    /**
+     * Get the bindings of the prefixes registered in the current maps.
+     * @return Map
+     */
+    private Map getRegisteredBindings() {
+        Map table = registeredBindings;
+        if (table == null) {
+            table = new ConcurrentHashMap();
+            registeredBindings = table;
+        }
+        return table;
+    }
+
+    /**
+     * Get a number that changes whenever a prefix may resolve differently
+     * through this resolver. Modification counts only grow, so their sum
+     * along the parents looked up does too.
+     * @return int
+     */
+    private int getState() {
+        int state = modCount;
+        if (parent != null && !inherited) {
+            state += parent.getState();
+        }
+        return state;
+    }
+
     /**
      * Learn whether this NamespaceResolver has been sealed.
      * @return boolean
@@ -190,8 +299,10 @@ public class NamespaceResolver implements Cloneable, Serializable {
 
     public Object clone() {
         try {
+            // the maps are copy-on-write, so they can be shared
             NamespaceResolver result = (NamespaceResolver) super.clone();
             result.sealed = false;
+            result.bindings = null;
             return result;
         }
         catch (CloneNotSupportedException e) {
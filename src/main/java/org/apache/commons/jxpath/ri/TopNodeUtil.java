@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.commons.jxpath.CompiledExpression;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.Pointer;
+import org.apache.commons.jxpath.ri.axes.InitialContext;
+import org.apache.commons.jxpath.ri.axes.RootContext;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Finds the nodes that come first when ordered by a sort key, for
+ * {@link JXPathContext#selectTop(String, String, int, Comparator)}.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public final class TopNodeUtil {
+
+    /**
+     * Orders sort keys the way XPath compares values: two keys that are
+     * numbers or strings representing numbers are compared as numbers, so
+     * the text "9" comes before "10000". Other keys of the same Comparable
+     * class, such as dates, are compared with each other; any other keys
+     * are compared by their string values.
+     */
+    public static final Comparator XPATH_ORDER = new Comparator() {
+        public int compare(Object left, Object right) {
+            if (isNumeric(left) && isNumeric(right)) {
+                return Double.compare(InfoSetUtil.doubleValue(left),
+                    InfoSetUtil.doubleValue(right));
+            }
+            if (left instanceof Comparable
+                    && left.getClass() == right.getClass()) {
+                return ((Comparable) left).compareTo(right);
+            }
+            return InfoSetUtil.stringValue(left).compareTo(
+                InfoSetUtil.stringValue(right));
+        }
+    };
+
+    /**
+     * Utility class, not instantiated.
+     */
+    private TopNodeUtil() {
+    }
+
+    /**
+     * Learn whether a sort key is a number or a string representing one.
+     * @param key to check
+     * @return boolean
+     */
+    private static boolean isNumeric(Object key) {
+        if (key instanceof Number) {
+            return true;
+        }
+        return key instanceof String && ((String) key).length() > 0
+                && !Double.isNaN(InfoSetUtil.doubleValue(key));
+    }
+
+    /**
+     * Finds pointers to the <code>k</code> nodes matching an XPath that
+     * come first when ordered by a sort key, see
+     * {@link JXPathContext#selectTop(String, String, int, Comparator)}.
+     * @param context to evaluate the XPaths in
+     * @param xpath the xpath to be evaluated
+     * @param keyXPath the xpath of the sort key, relative to each node
+     * @param k largest number of nodes to return
+     * @param order compares the keys; <code>null</code> for
+     *        {@link #XPATH_ORDER}
+     * @return a list of at most <code>k</code> Pointers, ordered by key
+     */
+    public static List selectTop(JXPathContext context, String xpath,
+            String keyXPath, int k, Comparator order) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Invalid count: " + k);
+        }
+        if (k == 0) {
+            return new ArrayList();
+        }
+        CompiledExpression key = JXPathContext.compile(keyXPath);
+        Comparator ranking = new Ranking(order == null ? XPATH_ORDER : order);
+        // The worst of the nodes kept is at the head of the queue
+        PriorityQueue top = new PriorityQueue(Math.min(k, 16),
+            Collections.reverseOrder(ranking));
+        int index = 0;
+        Iterator iterator = context.iteratePointers(xpath);
+        while (iterator.hasNext()) {
+            Pointer pointer = (Pointer) iterator.next();
+            Object value = getSortKey(context, key, pointer);
+            if (value == null) {
+                continue;
+            }
+            Ranked ranked = new Ranked(value, index++, pointer);
+            if (top.size() < k) {
+                ranked.pointer = (Pointer) pointer.clone();
+                top.add(ranked);
+            }
+            else if (ranking.compare(ranked, top.peek()) < 0) {
+                ranked.pointer = (Pointer) pointer.clone();
+                top.poll();
+                top.add(ranked);
+            }
+        }
+        Ranked[] sorted = (Ranked[]) top.toArray(new Ranked[top.size()]);
+        Arrays.sort(sorted, ranking);
+        ArrayList list = new ArrayList(sorted.length);
+        for (int i = 0; i < sorted.length; i++) {
+            list.add(sorted[i].pointer);
+        }
+        return list;
+    }
+
+    /**
+     * Evaluates the sort key of a node. The key is evaluated leniently, so
+     * a node without a key yields <code>null</code> whether or not the
+     * context is lenient. With the reference implementation, the key is
+     * evaluated directly against the node, without creating a relative
+     * context for each node.
+     * @param context the nodes were found in
+     * @param key compiled xpath of the sort key
+     * @param pointer to the node
+     * @return the key, or <code>null</code> if the key path finds no value
+     */
+    private static Object getSortKey(JXPathContext context,
+            CompiledExpression key, Pointer pointer) {
+        if (!(context instanceof JXPathContextReferenceImpl)
+                || !(key instanceof JXPathCompiledExpression)
+                || !(pointer instanceof NodePointer)) {
+            JXPathContext relative = context.getRelativeContext(pointer);
+            relative.setLenient(true);
+            return key.getValue(relative);
+        }
+        Object result = ((JXPathCompiledExpression) key).getExpression()
+                .computeValue(new InitialContext(new RootContext(
+                    (JXPathContextReferenceImpl) context,
+                    (NodePointer) pointer)));
+        if (result instanceof EvalContext) {
+            result = ((EvalContext) result).getSingleNodePointer();
+        }
+        if (result instanceof NodePointer) {
+            result = ((NodePointer) result).getValuePointer().getValue();
+        }
+        return result;
+    }
+
+    /**
+     * A node kept by {@link TopNodeUtil#selectTop} with its sort key.
+     */
+    private static final class Ranked {
+        private final Object key;
+        private final int index;
+        private Pointer pointer;
+
+        /**
+         * Create a new Ranked.
+         * @param key sort key
+         * @param index position of the node in the node set
+         * @param pointer to the node
+         */
+        private Ranked(Object key, int index, Pointer pointer) {
+            this.key = key;
+            this.index = index;
+            this.pointer = pointer;
+        }
+    }
+
+    /**
+     * Orders Ranked nodes by key, then by their position in the node set.
+     */
+    private static final class Ranking implements Comparator {
+        private final Comparator order;
+
+        /**
+         * Create a new Ranking.
+         * @param order compares the keys
+         */
+        private Ranking(Comparator order) {
+            this.order = order;
+        }
+
+        public int compare(Object left, Object right) {
+            Ranked l = (Ranked) left;
+            Ranked r = (Ranked) right;
+            int result = order.compare(l.key, r.key);
+            if (result != 0) {
+                return result;
+            }
+            return l.index < r.index ? -1 : l.index == r.index ? 0 : 1;
+        }
+    }
+}
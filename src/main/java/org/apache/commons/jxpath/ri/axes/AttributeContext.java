@@ -59,6 +59,18 @@ public class AttributeContext extends EvalContext {
         super.reset();
     }
 
+    public void expectAllNodes() {
+        parentContext.expectAllNodes();
+    }
+
+    public boolean rewind() {
+        rewindIteration();
+        setStarted = false;
+        iterator = null;
+        currentNodePointer = null;
+        return true;
+    }
+
     public boolean setPosition(int position) {
         if (position < getCurrentPosition()) {
             reset();
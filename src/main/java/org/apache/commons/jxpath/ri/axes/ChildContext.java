@@ -87,11 +87,25 @@ public class ChildContext extends EvalContext {
         return setPosition(getCurrentPosition() + 1);
     }
 
+    protected int skipNodes(int count) {
+        return skipNodesByPosition(count);
+    }
+
+    public void expectAllNodes() {
+        parentContext.expectAllNodes();
+    }
+
     public void reset() {
         super.reset();
         iterator = null;
     }
 
+    public boolean rewind() {
+        rewindIteration();
+        iterator = null;
+        return true;
+    }
+
     public boolean setPosition(int position) {
         int oldPosition = getCurrentPosition();
         super.setPosition(position);
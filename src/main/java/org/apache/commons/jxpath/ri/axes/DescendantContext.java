@@ -16,7 +16,13 @@
  */
 package org.apache.commons.jxpath.ri.axes;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.Compiler;
@@ -28,7 +34,11 @@ import org.apache.commons.jxpath.ri.model.NodePointer;
 
 /**
  * An EvalContext that walks the "descendant::" and "descendant-or-self::"
- * axes.
+ * axes. If the JXPathContext has a fork-join pool and all the nodes of the
+ * context are going to be read (see {@link #expectAllNodes()}), the
+ * descendants of each context node are found by parallel tasks and then
+ * iterated over. Otherwise they are walked one at a time, so that finding
+ * the first few reads no more of the graph than necessary.
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
@@ -38,6 +48,9 @@ public class DescendantContext extends EvalContext {
     private boolean setStarted = false;
     private Stack stack = null;
     private NodePointer currentNodePointer = null;
+    private List foundNodes = null;
+    private int foundIndex;
+    private boolean allNodesExpected;
     private boolean includeSelf;
     private static final NodeTest ELEMENT_NODE_TEST =
             new NodeTypeTest(Compiler.NODE_TYPE_NODE);
@@ -66,9 +79,37 @@ public class DescendantContext extends EvalContext {
         return currentNodePointer;
     }
 
+    public void expectAllNodes() {
+        allNodesExpected = true;
+        parentContext.expectAllNodes();
+    }
+
+    public boolean nextSet() {
+        foundNodes = null;
+        return super.nextSet();
+    }
+
     public void reset() {
         super.reset();
+        if (foundNodes == null) {
+            setStarted = false;
+        }
+        else {
+            // Same set: iterate over the nodes found again
+            foundIndex = 0;
+        }
+    }
+
+    public boolean rewind() {
+        rewindIteration();
+        allNodesExpected = false;
         setStarted = false;
+        if (stack != null) {
+            stack.clear();
+        }
+        currentNodePointer = null;
+        foundNodes = null;
+        return true;
     }
 
     public boolean setPosition(int position) {
@@ -85,6 +126,23 @@ public class DescendantContext extends EvalContext {
     }
 
     public boolean nextNode() {
+        if (!setStarted && allNodesExpected) {
+            ForkJoinPool pool = getJXPathContext().getForkJoinPool();
+            if (pool != null) {
+                setStarted = true;
+                foundNodes = findDescendants(pool);
+                foundIndex = 0;
+            }
+        }
+        if (foundNodes != null) {
+            if (foundIndex < foundNodes.size()) {
+                currentNodePointer = (NodePointer) foundNodes.get(foundIndex++);
+                position++;
+                return true;
+            }
+            return false;
+        }
+
         if (!setStarted) {
             setStarted = true;
             if (stack == null) {
@@ -152,4 +210,201 @@ public class DescendantContext extends EvalContext {
         }
         return false;
     }
+
+    /**
+     * Find all nodes of the axis for the current node of the parent context
+     * with fork-join tasks.
+     * @param pool to run the tasks in
+     * @return List of NodePointer in document order
+     */
+    private List findDescendants(ForkJoinPool pool) {
+        NodePointer node = parentContext.getCurrentNodePointer();
+        if (node == null) {
+            return Collections.EMPTY_LIST;
+        }
+        List result = new ArrayList();
+        if (includeSelf && node.testNode(nodeTest)) {
+            result.add(node);
+        }
+        if (!node.isLeaf()) {
+            NodePointer[] children = DescendantTask.getChildren(node);
+            DescendantTask task = new DescendantTask(nodeTest, children, 0,
+                    children.length, null);
+            // A task that is already running in the pool joins its subtasks
+            // rather than waiting for the pool to run a new one
+            result.addAll((List) (ForkJoinTask.getPool() == pool ? task
+                    .invoke() : pool.invoke(task)));
+        }
+        return result;
+    }
+
+    /**
+     * A node on the path from the context node to the nodes a task walks,
+     * used to detect cycles the same way {@link #isRecursive()} does.
+     */
+    private static final class Ancestor {
+        private final Object node;
+        private final Ancestor parent;
+
+        /**
+         * Create a new Ancestor.
+         * @param node the node
+         * @param parent the ancestor above it, or null
+         */
+        private Ancestor(Object node, Ancestor parent) {
+            this.node = node;
+            this.parent = parent;
+        }
+
+        /**
+         * Learn whether a node is this one or one of its ancestors.
+         * @param node to look for
+         * @return boolean
+         */
+        private boolean contains(Object node) {
+            for (Ancestor a = this; a != null; a = a.parent) {
+                if (a.node == node) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Finds, in document order, the nodes passing a test among a range of
+     * sibling nodes and their descendants. The subtrees are walked depth
+     * first; while the pool is short of queued work, the latter half of the
+     * siblings remaining at a level is split off to a new task, whose
+     * results are spliced in once the siblings before them are done.
+     */
+    private static final class DescendantTask extends RecursiveTask {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Queued tasks beyond which a task stops splitting off new ones.
+         */
+        private static final int MAX_SURPLUS = 3;
+
+        private final NodeTest nodeTest;
+        private final NodePointer[] nodes;
+        private final int from;
+        private final int to;
+        private final Ancestor ancestors;
+
+        /**
+         * Create a new DescendantTask.
+         * @param nodeTest test
+         * @param nodes siblings
+         * @param from index of the first sibling to walk
+         * @param to index following the last sibling to walk
+         * @param ancestors of the siblings, not including the context node
+         */
+        private DescendantTask(NodeTest nodeTest, NodePointer[] nodes,
+                int from, int to, Ancestor ancestors) {
+            this.nodeTest = nodeTest;
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.ancestors = ancestors;
+        }
+
+        protected Object compute() {
+            // Found nodes, interleaved with the tasks walking the siblings
+            // that follow them
+            List found = new ArrayList();
+            Stack levels = new Stack();
+            levels.push(new Level(nodes, from, to, ancestors));
+            while (!levels.isEmpty()) {
+                Level level = (Level) levels.peek();
+                if (level.next == level.to) {
+                    levels.pop();
+                    for (int i = level.split.size(); --i >= 0;) {
+                        found.add(level.split.get(i));
+                    }
+                    continue;
+                }
+                if (level.to - level.next > 1
+                        && getSurplusQueuedTaskCount() <= MAX_SURPLUS) {
+                    int middle = (level.next + level.to) >>> 1;
+                    DescendantTask task = new DescendantTask(nodeTest,
+                            level.nodes, middle, level.to, level.ancestors);
+                    task.fork();
+                    level.split.add(task);
+                    level.to = middle;
+                }
+                NodePointer node = level.nodes[level.next++];
+                Object value = node.getNode();
+                if (level.ancestors != null && level.ancestors.contains(value)) {
+                    continue;
+                }
+                if (node.testNode(nodeTest)) {
+                    found.add(node);
+                }
+                if (!node.isLeaf()) {
+                    NodePointer[] children = getChildren(node);
+                    if (children.length > 0) {
+                        levels.push(new Level(children, 0, children.length,
+                                new Ancestor(value, level.ancestors)));
+                    }
+                }
+            }
+
+            List result = new ArrayList(found.size());
+            for (int i = 0; i < found.size(); i++) {
+                Object element = found.get(i);
+                if (element instanceof DescendantTask) {
+                    result.addAll((List) ((DescendantTask) element).join());
+                }
+                else {
+                    result.add(element);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Get the children of a node.
+         * @param node parent
+         * @return NodePointer[] with a pointer of its own for every child
+         */
+        private static NodePointer[] getChildren(NodePointer node) {
+            NodeIterator it = node.childIterator(ELEMENT_NODE_TEST, false, null);
+            if (it == null) {
+                return new NodePointer[0];
+            }
+            List children = new ArrayList();
+            for (int p = 1; it.setPosition(p); p++) {
+                children.add(it.getNodePointer().clone());
+            }
+            return (NodePointer[]) children.toArray(
+                new NodePointer[children.size()]);
+        }
+
+        /**
+         * The siblings remaining to be walked at one level of a subtree.
+         */
+        private static final class Level {
+            private final NodePointer[] nodes;
+            private final Ancestor ancestors;
+            private final List split = new ArrayList();
+            private int next;
+            private int to;
+
+            /**
+             * Create a new Level.
+             * @param nodes siblings
+             * @param next index of the next sibling to walk
+             * @param to index following the last sibling to walk
+             * @param ancestors of the siblings
+             */
+            private Level(NodePointer[] nodes, int next, int to,
+                    Ancestor ancestors) {
+                this.nodes = nodes;
+                this.next = next;
+                this.to = to;
+                this.ancestors = ancestors;
+            }
+        }
+    }
 }
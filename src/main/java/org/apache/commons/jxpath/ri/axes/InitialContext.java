@@ -19,6 +19,7 @@ package org.apache.commons.jxpath.ri.axes;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.EvalContext;
 import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.ri.model.beans.IterablePointer;
 
 /**
  * A single-set EvalContext that provides access to the current node of
@@ -39,6 +40,13 @@ public class InitialContext extends EvalContext {
      */
     public InitialContext(EvalContext parentContext) {
         super(parentContext);
+        start();
+    }
+
+    /**
+     * Take the current node of the parent context.
+     */
+    private void start() {
         nodePointer =
             (NodePointer) parentContext.getCurrentNodePointer().clone();
         if (nodePointer != null) {
@@ -47,6 +55,29 @@ public class InitialContext extends EvalContext {
         }
     }
 
+    public boolean rewind() {
+        rewind(parentContext);
+        return true;
+    }
+
+    /**
+     * Rewinds this context and moves it to the current node of another
+     * parent context.
+     * @param parentContext the new parent context, <code>null</code> to
+     *        just release the current node
+     * @since JXPath 1.4
+     */
+    public void rewind(EvalContext parentContext) {
+        rewindIteration();
+        this.parentContext = parentContext;
+        started = false;
+        collection = false;
+        nodePointer = null;
+        if (parentContext != null) {
+            start();
+        }
+    }
+
     public Pointer getSingleNodePointer() {
         return nodePointer;
     }
@@ -63,10 +94,14 @@ public class InitialContext extends EvalContext {
         return setPosition(position + 1);
     }
 
+    protected int skipNodes(int count) {
+        return skipNodesByPosition(count);
+    }
+
     public boolean setPosition(int position) {
         this.position = position;
         if (collection) {
-            if (position >= 1 && position <= nodePointer.getLength()) {
+            if (position >= 1 && hasElement(position - 1)) {
                 nodePointer.setIndex(position - 1);
                 return true;
             }
@@ -75,6 +110,20 @@ public class InitialContext extends EvalContext {
         return position == 1;
     }
 
+    /**
+     * Learn whether the collection has an element at the specified index.
+     * Iterables are not counted up front, so that only the elements that
+     * are actually visited get read.
+     * @param index int
+     * @return boolean
+     */
+    private boolean hasElement(int index) {
+        if (nodePointer instanceof IterablePointer) {
+            return ((IterablePointer) nodePointer).hasElement(index);
+        }
+        return index < nodePointer.getLength();
+    }
+
     public boolean nextSet() {
         if (started) {
             return false;
@@ -67,4 +67,8 @@ public class NodeSetContext extends EvalContext {
     public boolean nextNode() {
         return setPosition(position + 1);
     }
+
+    protected int skipNodes(int count) {
+        return skipNodesByPosition(count);
+    }
 }
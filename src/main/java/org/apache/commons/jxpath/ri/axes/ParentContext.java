@@ -58,6 +58,13 @@ public class ParentContext extends EvalContext {
         setStarted = false;
     }
 
+    public boolean rewind() {
+        rewindIteration();
+        setStarted = false;
+        currentNodePointer = null;
+        return true;
+    }
+
     public boolean setPosition(int position) {
         super.setPosition(position);
         return position == 1;
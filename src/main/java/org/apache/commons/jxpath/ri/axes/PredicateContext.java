@@ -16,18 +16,43 @@
  */
 package org.apache.commons.jxpath.ri.axes;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.Compiler;
 import org.apache.commons.jxpath.ri.EvalContext;
 import org.apache.commons.jxpath.ri.InfoSetUtil;
+import org.apache.commons.jxpath.ri.compiler.CoreFunction;
+import org.apache.commons.jxpath.ri.compiler.CoreOperationAnd;
+import org.apache.commons.jxpath.ri.compiler.CoreOperationCompare;
+import org.apache.commons.jxpath.ri.compiler.CoreOperationOr;
+import org.apache.commons.jxpath.ri.compiler.CoreOperationRelationalExpression;
 import org.apache.commons.jxpath.ri.compiler.Expression;
+import org.apache.commons.jxpath.ri.compiler.ExpressionPath;
 import org.apache.commons.jxpath.ri.compiler.NameAttributeTest;
+import org.apache.commons.jxpath.ri.compiler.Operation;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.ri.model.beans.PropertyOwnerPointer;
 import org.apache.commons.jxpath.ri.model.beans.PropertyPointer;
 
 /**
  * EvalContext that checks predicates.
+ * <p>
+ * If the JXPathContext has a fork-join pool and all the nodes of the
+ * context are going to be read (see {@link #expectAllNodes()}), a predicate
+ * that depends on the candidate node but does not use
+ * <code>position()</code> or <code>last()</code> is evaluated for batches
+ * of candidates: the
+ * candidates are read ahead from the parent context and, if there are
+ * enough of them, the predicate is computed for them by parallel tasks.
+ * The values are then interpreted in order, as they would have been one
+ * at a time, and an exception thrown for a candidate is rethrown when that
+ * candidate is reached.
+ * </p>
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
@@ -37,6 +62,29 @@ public class PredicateContext extends EvalContext {
     private boolean done = false;
     private Expression nameTestExpression;
     private PropertyPointer dynamicPropertyPointer;
+    private boolean batchable;
+    private boolean allNodesExpected;
+    private NodePointer[] candidates;
+    private int[] candidatePositions;
+    private Object[] candidateResults;
+    private int candidateCount;
+    private int nextCandidate;
+    private NodePointer currentCandidate;
+
+    /**
+     * Largest number of candidates read ahead at once.
+     */
+    private static final int BATCH_SIZE = 1024;
+
+    /**
+     * Number of candidates there is room for at first.
+     */
+    private static final int INITIAL_BATCH_SIZE = 16;
+
+    /**
+     * Computed value of a predicate yielding an empty node set.
+     */
+    private static final Object NO_VALUE = new Object();
 
     /**
      * Create a new PredicateContext.
@@ -50,12 +98,50 @@ public class PredicateContext extends EvalContext {
             nameTestExpression =
                 ((NameAttributeTest) expression).getNameTestExpression();
         }
+        batchable = nameTestExpression == null
+                && expression.isContextDependent()
+                && !usesPosition(expression);
+    }
+
+    /**
+     * Learn whether an expression uses the position of the context node
+     * or the size of the context. The predicates of nested paths have
+     * contexts of their own and are not checked.
+     * @param expression to check
+     * @return boolean
+     */
+    private static boolean usesPosition(Expression expression) {
+        if (expression instanceof CoreFunction) {
+            int code = ((CoreFunction) expression).getFunctionCode();
+            if (code == Compiler.FUNCTION_POSITION
+                    || code == Compiler.FUNCTION_LAST) {
+                return true;
+            }
+        }
+        if (expression instanceof ExpressionPath) {
+            return usesPosition(((ExpressionPath) expression).getExpression());
+        }
+        if (expression instanceof Operation) {
+            Expression[] args = ((Operation) expression).getArguments();
+            if (args != null) {
+                for (int i = 0; i < args.length; i++) {
+                    if (usesPosition(args[i])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
     }
 
     public boolean nextNode() {
         if (done) {
             return false;
         }
+        if (batchable && allNodesExpected && (candidates != null
+                || getJXPathContext().getForkJoinPool() != null)) {
+            return nextCandidate();
+        }
         while (parentContext.nextNode()) {
             if (setupDynamicPropertyPointer()) {
                 Object pred = nameTestExpression.computeValue(parentContext);
@@ -69,15 +155,7 @@ public class PredicateContext extends EvalContext {
                 // That's not acceptable for us: we really need to know
                 // if the property is currently declared. Thus,
                 // we'll need to perform a search.
-                boolean ok = false;
-                String[] names = dynamicPropertyPointer.getPropertyNames();
-                for (int i = 0; i < names.length; i++) {
-                    if (names[i].equals(propertyName)) {
-                        ok = true;
-                        break;
-                    }
-                }
-                if (ok) {
+                if (dynamicPropertyPointer.hasProperty(propertyName)) {
                     dynamicPropertyPointer.setPropertyName(propertyName);
                     position++;
                     return true;
@@ -157,16 +235,247 @@ public class PredicateContext extends EvalContext {
         if (position == 0 && !setPosition(1)) {
             return null;
         }
+        if (currentCandidate != null) {
+            return currentCandidate;
+        }
         if (dynamicPropertyPointer != null) {
             return dynamicPropertyPointer.getValuePointer();
         }
         return parentContext.getCurrentNodePointer();
     }
 
+    public void expectAllNodes() {
+        allNodesExpected = true;
+        // A predicate that yields a number stops at the node with that
+        // position, so only boolean predicates read all candidates
+        if (expression instanceof CoreOperationCompare
+                || expression instanceof CoreOperationRelationalExpression
+                || expression instanceof CoreOperationAnd
+                || expression instanceof CoreOperationOr) {
+            parentContext.expectAllNodes();
+        }
+    }
+
     public void reset() {
         super.reset();
         parentContext.reset();
         done = false;
+        clearCandidates();
+    }
+
+    public boolean rewind() {
+        rewindIteration();
+        done = false;
+        allNodesExpected = false;
+        dynamicPropertyPointer = null;
+        clearCandidates();
+        return true;
+    }
+
+    /**
+     * Forget the candidates read ahead.
+     */
+    private void clearCandidates() {
+        if (candidates != null) {
+            Arrays.fill(candidates, 0, candidateCount, null);
+            Arrays.fill(candidateResults, 0, candidateCount, null);
+        }
+        candidateCount = 0;
+        nextCandidate = 0;
+        currentCandidate = null;
+    }
+
+    /**
+     * Move to the next candidate read ahead that passes the predicate,
+     * reading ahead the next batch when needed.
+     * @return whether there is such a candidate
+     */
+    private boolean nextCandidate() {
+        while (true) {
+            if (nextCandidate == candidateCount && !readCandidates()) {
+                currentCandidate = null;
+                return false;
+            }
+            int i = nextCandidate++;
+            Object pred = candidateResults[i];
+            if (pred == null) {
+                pred = computeCandidate(i);
+            }
+            if (pred instanceof RuntimeException) {
+                throw (RuntimeException) pred;
+            }
+            if (pred == NO_VALUE) {
+                currentCandidate = null;
+                return false;
+            }
+            if (pred instanceof Number) {
+                // The parent context has been read ahead, but can go back
+                int pos = (int) InfoSetUtil.doubleValue(pred);
+                currentCandidate = null;
+                position++;
+                done = true;
+                return parentContext.setPosition(pos);
+            }
+            if (InfoSetUtil.booleanValue(pred)) {
+                currentCandidate = candidates[i];
+                position++;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Read the next batch of candidates from the parent context, and check
+     * them in parallel if there are enough of them.
+     * @return whether any candidate was read
+     */
+    private boolean readCandidates() {
+        JXPathContext jxpathContext = getJXPathContext();
+        int threshold = jxpathContext.getParallelThreshold();
+        int batchSize = Math.max(threshold, BATCH_SIZE);
+        clearCandidates();
+        if (candidates == null) {
+            candidates = new NodePointer[INITIAL_BATCH_SIZE];
+            candidatePositions = new int[INITIAL_BATCH_SIZE];
+            candidateResults = new Object[INITIAL_BATCH_SIZE];
+        }
+        while (candidateCount < batchSize && parentContext.nextNode()) {
+            if (candidateCount == candidates.length) {
+                int size = Math.min(batchSize, candidateCount * 2);
+                candidates = Arrays.copyOf(candidates, size);
+                candidatePositions = Arrays.copyOf(candidatePositions, size);
+                candidateResults = Arrays.copyOf(candidateResults, size);
+            }
+            candidates[candidateCount] =
+                (NodePointer) parentContext.getCurrentNodePointer().clone();
+            candidatePositions[candidateCount] =
+                parentContext.getCurrentPosition();
+            candidateCount++;
+        }
+        if (candidateCount == 0) {
+            return false;
+        }
+        ForkJoinPool pool = jxpathContext.getForkJoinPool();
+        if (pool != null && candidateCount >= threshold) {
+            CandidateTask task = new CandidateTask(this, 0, candidateCount);
+            // A task that is already running in the pool joins its subtasks
+            // rather than waiting for the pool to run a new one
+            if (ForkJoinTask.getPool() == pool) {
+                task.invoke();
+            }
+            else {
+                pool.invoke(task);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compute the predicate for a candidate read ahead. An iterator is
+     * replaced by its first value, or {@link #NO_VALUE} if empty, and a
+     * node pointer by its node.
+     * @param i index of the candidate
+     * @return value, or the RuntimeException thrown
+     */
+    private Object computeCandidate(int i) {
+        Object pred;
+        try {
+            pred = expression.computeValue(new CandidateContext(this,
+                    candidates[i], candidatePositions[i]));
+            if (pred instanceof Iterator) {
+                Iterator it = (Iterator) pred;
+                pred = it.hasNext() ? it.next() : NO_VALUE;
+            }
+            if (pred instanceof NodePointer) {
+                pred = ((NodePointer) pred).getNode();
+            }
+            if (pred == null) {
+                pred = Boolean.FALSE;
+            }
+        }
+        catch (RuntimeException ex) {
+            pred = ex;
+        }
+        candidateResults[i] = pred;
+        return pred;
+    }
+
+    /**
+     * Checks a range of the candidates read ahead.
+     */
+    private static final class CandidateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Queued tasks beyond which a task stops splitting off new ones.
+         */
+        private static final int MAX_SURPLUS = 3;
+
+        private final PredicateContext context;
+        private final int from;
+        private final int to;
+
+        /**
+         * Create a new CandidateTask.
+         * @param context owning the candidates
+         * @param from index of the first candidate to check
+         * @param to index following the last candidate to check
+         */
+        private CandidateTask(PredicateContext context, int from, int to) {
+            this.context = context;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from > 1 && getSurplusQueuedTaskCount() <= MAX_SURPLUS) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CandidateTask(context, from, middle),
+                    new CandidateTask(context, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                context.computeCandidate(i);
+            }
+        }
+    }
+
+    /**
+     * The context a predicate is evaluated in for a candidate read ahead:
+     * the candidate is its current node, at the position it had in the
+     * parent context.
+     */
+    private static final class CandidateContext extends EvalContext {
+        private final NodePointer pointer;
+
+        /**
+         * Create a new CandidateContext.
+         * @param parentContext parent context
+         * @param pointer candidate
+         * @param position of the candidate
+         */
+        private CandidateContext(EvalContext parentContext, NodePointer pointer,
+                int position) {
+            super(parentContext);
+            this.pointer = pointer;
+            this.position = position;
+        }
+
+        public NodePointer getCurrentNodePointer() {
+            return pointer;
+        }
+
+        public boolean nextNode() {
+            return false;
+        }
+
+        public boolean nextSet() {
+            return false;
+        }
+
+        public boolean setPosition(int position) {
+            return position == this.position;
+        }
     }
 
     public boolean nextSet() {
@@ -63,6 +63,17 @@ public class SelfContext extends EvalContext {
         startedSet = false;
     }
 
+    public void expectAllNodes() {
+        parentContext.expectAllNodes();
+    }
+
+    public boolean rewind() {
+        rewindIteration();
+        startedSet = false;
+        nodePointer = null;
+        return true;
+    }
+
     public boolean setPosition(int position) {
         if (position != 1) {
             return false;
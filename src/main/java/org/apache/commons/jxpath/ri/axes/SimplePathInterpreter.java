@@ -885,14 +885,8 @@ public class SimplePathInterpreter {
         NodePointer pointer,
         Step step) {
         if (step.getAxis() == Compiler.AXIS_CHILD) {
-            NodeTest nodeTest = step.getNodeTest();
-            QName qname = ((NodeNameTest) nodeTest).getNodeName();
-            String prefix = qname.getPrefix();
-            if (prefix != null) {
-                String namespaceURI = context.getJXPathContext()
-                        .getNamespaceURI(prefix);
-                nodeTest = new NodeNameTest(qname, namespaceURI);
-            }
+            NodeTest nodeTest = ((NodeNameTest) step.getNodeTest())
+                    .bindNamespace(context.getJXPathContext());
             return pointer.childIterator(nodeTest, false, null);
         }
         // else Compiler.AXIS_ATTRIBUTE
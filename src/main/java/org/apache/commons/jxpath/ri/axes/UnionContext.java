@@ -18,6 +18,10 @@ package org.apache.commons.jxpath.ri.axes;
 
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import org.apache.commons.jxpath.BasicNodeSet;
 import org.apache.commons.jxpath.Pointer;
@@ -27,6 +31,12 @@ import org.apache.commons.jxpath.ri.model.NodePointer;
 /**
  * EvalContext that represents a union between other contexts - result
  * of a union operation like (a | b)
+ * <p>
+ * If the JXPathContext has a fork-join pool, the branches of the union are
+ * iterated by concurrent tasks, at most
+ * {@link org.apache.commons.jxpath.JXPathContext#getMaxParallelBranches()}
+ * of them, before their nodes are merged.
+ * </p>
  *
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
@@ -52,19 +62,37 @@ public class UnionContext extends NodeSetContext {
     public boolean setPosition(int position) {
         if (!prepared) {
             prepared = true;
+            for (int i = 0; i < contexts.length; i++) {
+                contexts[i].expectAllNodes();
+            }
             BasicNodeSet nodeSet = (BasicNodeSet) getNodeSet();
             ArrayList pointers = new ArrayList();
-            for (int i = 0; i < contexts.length; i++) {
-                EvalContext ctx = contexts[i];
-                while (ctx.nextSet()) {
-                    while (ctx.nextNode()) {
-                        NodePointer ptr = ctx.getCurrentNodePointer();
+            ForkJoinPool pool = contexts.length > 1
+                    ? getJXPathContext().getForkJoinPool() : null;
+            if (pool != null) {
+                List[] branches = collectBranches(pool);
+                for (int i = 0; i < branches.length; i++) {
+                    for (Iterator it = branches[i].iterator(); it.hasNext();) {
+                        Object ptr = it.next();
                         if (!pointers.contains(ptr)) {
                             pointers.add(ptr);
                         }
                     }
                 }
             }
+            else {
+                for (int i = 0; i < contexts.length; i++) {
+                    EvalContext ctx = contexts[i];
+                    while (ctx.nextSet()) {
+                        while (ctx.nextNode()) {
+                            NodePointer ptr = ctx.getCurrentNodePointer();
+                            if (!pointers.contains(ptr)) {
+                                pointers.add(ptr);
+                            }
+                        }
+                    }
+                }
+            }
             sortPointers(pointers);
 
             for (Iterator it = pointers.iterator(); it.hasNext();) {
@@ -73,4 +101,73 @@ public class UnionContext extends NodeSetContext {
         }
         return super.setPosition(position);
     }
+
+    /**
+     * Collect the nodes of every branch with fork-join tasks.
+     * @param pool to run the tasks in
+     * @return List[] of the nodes of each branch
+     */
+    private List[] collectBranches(ForkJoinPool pool) {
+        List[] branches = new List[contexts.length];
+        int count = Math.min(contexts.length,
+            getJXPathContext().getMaxParallelBranches());
+        BranchTask[] tasks = new BranchTask[count];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = new BranchTask(contexts, branches, i, count);
+        }
+        if (ForkJoinTask.getPool() == pool) {
+            ForkJoinTask.invokeAll(tasks);
+        }
+        else {
+            for (int i = 1; i < count; i++) {
+                pool.execute(tasks[i]);
+            }
+            tasks[0].invoke();
+            for (int i = 1; i < count; i++) {
+                tasks[i].join();
+            }
+        }
+        return branches;
+    }
+
+    /**
+     * Collects the nodes of every <code>step</code>th branch, starting with
+     * the <code>first</code>.
+     */
+    private static final class BranchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final EvalContext[] contexts;
+        private final List[] branches;
+        private final int first;
+        private final int step;
+
+        /**
+         * Create a new BranchTask.
+         * @param contexts branches
+         * @param branches receives the nodes of each branch
+         * @param first index of the first branch
+         * @param step distance to the next branch
+         */
+        private BranchTask(EvalContext[] contexts, List[] branches, int first,
+                int step) {
+            this.contexts = contexts;
+            this.branches = branches;
+            this.first = first;
+            this.step = step;
+        }
+
+        protected void compute() {
+            for (int i = first; i < contexts.length; i += step) {
+                List pointers = new ArrayList();
+                EvalContext ctx = contexts[i];
+                while (ctx.nextSet()) {
+                    while (ctx.nextNode()) {
+                        pointers.add(ctx.getCurrentNodePointer());
+                    }
+                }
+                branches[i] = pointers;
+            }
+        }
+    }
 }
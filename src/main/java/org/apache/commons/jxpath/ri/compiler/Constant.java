@@ -53,6 +53,10 @@ public class Constant extends Expression {
         return value;
     }
 
+    public boolean isNumberValued() {
+        return value instanceof Number;
+    }
+
     /**
      * Returns false
      * @return false
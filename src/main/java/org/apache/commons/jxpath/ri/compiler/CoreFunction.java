@@ -311,6 +311,79 @@ public class CoreFunction extends Operation {
         }
     }
 
+    public double computeDouble(EvalContext context) {
+        switch (functionCode) {
+            case Compiler.FUNCTION_SUM :
+                return sum(context);
+            case Compiler.FUNCTION_FLOOR :
+                assertArgCount(1);
+                return Math.floor(getArg1().computeDouble(context));
+            case Compiler.FUNCTION_CEILING :
+                assertArgCount(1);
+                return Math.ceil(getArg1().computeDouble(context));
+            case Compiler.FUNCTION_ROUND :
+                assertArgCount(1);
+                return round(getArg1().computeDouble(context));
+            case Compiler.FUNCTION_POSITION :
+                assertArgCount(0);
+                return context.getCurrentPosition();
+            default:
+                return super.computeDouble(context);
+        }
+    }
+
+    public boolean computeBoolean(EvalContext context) {
+        switch (functionCode) {
+            case Compiler.FUNCTION_BOOLEAN :
+                assertArgCount(1);
+                return getArg1().computeBoolean(context);
+            case Compiler.FUNCTION_NOT :
+                assertArgCount(1);
+                return !getArg1().computeBoolean(context);
+            case Compiler.FUNCTION_TRUE :
+                assertArgCount(0);
+                return true;
+            case Compiler.FUNCTION_FALSE :
+                assertArgCount(0);
+                return false;
+            default:
+                return super.computeBoolean(context);
+        }
+    }
+
+    public boolean isNumberValued() {
+        switch (functionCode) {
+            case Compiler.FUNCTION_LAST :
+            case Compiler.FUNCTION_POSITION :
+            case Compiler.FUNCTION_COUNT :
+            case Compiler.FUNCTION_STRING_LENGTH :
+            case Compiler.FUNCTION_NUMBER :
+            case Compiler.FUNCTION_SUM :
+            case Compiler.FUNCTION_FLOOR :
+            case Compiler.FUNCTION_CEILING :
+            case Compiler.FUNCTION_ROUND :
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public boolean isBooleanValued() {
+        switch (functionCode) {
+            case Compiler.FUNCTION_LANG :
+            case Compiler.FUNCTION_STARTS_WITH :
+            case Compiler.FUNCTION_ENDS_WITH :
+            case Compiler.FUNCTION_CONTAINS :
+            case Compiler.FUNCTION_BOOLEAN :
+            case Compiler.FUNCTION_NOT :
+            case Compiler.FUNCTION_TRUE :
+            case Compiler.FUNCTION_FALSE :
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * last() implementation.
      * @param context evaluation context
@@ -359,6 +432,7 @@ public class CoreFunction extends Operation {
         }
         if (value instanceof EvalContext) {
             EvalContext ctx = (EvalContext) value;
+            ctx.expectAllNodes();
             while (ctx.hasNext()) {
                 ctx.next();
                 count++;
@@ -807,19 +881,29 @@ public class CoreFunction extends Operation {
      * @return Number
      */
     protected Object functionSum(EvalContext context) {
+        return new Double(sum(context));
+    }
+
+    /**
+     * Sum the numeric values of the nodes selected by the argument.
+     * @param context evaluation context
+     * @return double
+     */
+    private double sum(EvalContext context) {
         assertArgCount(1);
         Object v = getArg1().compute(context);
         if (v == null) {
-            return ZERO;
+            return 0.0;
         }
         if (v instanceof EvalContext) {
             double sum = 0.0;
             EvalContext ctx = (EvalContext) v;
+            ctx.expectAllNodes();
             while (ctx.hasNext()) {
                 NodePointer ptr = (NodePointer) ctx.next();
-                sum += InfoSetUtil.doubleValue(ptr);
+                sum += ptr.getDoubleValue();
             }
-            return new Double(sum);
+            return sum;
         }
         throw new JXPathException(
             "Invalid argument type for 'sum': " + v.getClass().getName());
@@ -832,11 +916,7 @@ public class CoreFunction extends Operation {
      */
     protected Object functionFloor(EvalContext context) {
         assertArgCount(1);
-        double v = InfoSetUtil.doubleValue(getArg1().computeValue(context));
-        if (Double.isNaN(v) || Double.isInfinite(v)) {
-            return new Double(v);
-        }
-        return new Double(Math.floor(v));
+        return new Double(Math.floor(getArg1().computeDouble(context)));
     }
 
     /**
@@ -846,11 +926,7 @@ public class CoreFunction extends Operation {
      */
     protected Object functionCeiling(EvalContext context) {
         assertArgCount(1);
-        double v = InfoSetUtil.doubleValue(getArg1().computeValue(context));
-        if (Double.isNaN(v) || Double.isInfinite(v)) {
-            return new Double(v);
-        }
-        return new Double(Math.ceil(v));
+        return new Double(Math.ceil(getArg1().computeDouble(context)));
     }
 
     /**
@@ -860,11 +936,19 @@ public class CoreFunction extends Operation {
      */
     protected Object functionRound(EvalContext context) {
         assertArgCount(1);
-        double v = InfoSetUtil.doubleValue(getArg1().computeValue(context));
+        return new Double(round(getArg1().computeDouble(context)));
+    }
+
+    /**
+     * Round to the nearest integer, leaving NaN and infinities as they are.
+     * @param v to round
+     * @return double
+     */
+    private static double round(double v) {
         if (Double.isNaN(v) || Double.isInfinite(v)) {
-            return new Double(v);
+            return v;
         }
-        return new Double(Math.round(v));
+        return Math.round(v);
     }
 
     /**
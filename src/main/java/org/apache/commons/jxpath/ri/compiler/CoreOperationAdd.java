@@ -17,7 +17,6 @@
 package org.apache.commons.jxpath.ri.compiler;
 
 import org.apache.commons.jxpath.ri.EvalContext;
-import org.apache.commons.jxpath.ri.InfoSetUtil;
 
 /**
  * Implementation of {@link Expression} for the operation "+".
@@ -36,11 +35,19 @@ public class CoreOperationAdd extends CoreOperation {
     }
 
     public Object computeValue(EvalContext context) {
+        return new Double(computeDouble(context));
+    }
+
+    public double computeDouble(EvalContext context) {
         double s = 0.0;
         for (int i = 0; i < args.length; i++) {
-            s += InfoSetUtil.doubleValue(args[i].computeValue(context));
+            s += args[i].computeDouble(context);
         }
-        return new Double(s);
+        return s;
+    }
+
+    public boolean isNumberValued() {
+        return true;
     }
 
     protected int getPrecedence() {
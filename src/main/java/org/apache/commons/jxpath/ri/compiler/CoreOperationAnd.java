@@ -17,7 +17,6 @@
 package org.apache.commons.jxpath.ri.compiler;
 
 import org.apache.commons.jxpath.ri.EvalContext;
-import org.apache.commons.jxpath.ri.InfoSetUtil;
 
 /**
  * Implementation of {@link Expression} for the operation "and".
@@ -36,12 +35,20 @@ public class CoreOperationAnd extends CoreOperation {
     }
 
     public Object computeValue(EvalContext context) {
+        return computeBoolean(context) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    public boolean computeBoolean(EvalContext context) {
         for (int i = 0; i < args.length; i++) {
-            if (!InfoSetUtil.booleanValue(args[i].computeValue(context))) {
-                return Boolean.FALSE;
+            if (!args[i].computeBoolean(context)) {
+                return false;
             }
         }
-        return Boolean.TRUE;
+        return true;
+    }
+
+    public boolean isBooleanValued() {
+        return true;
     }
 
     protected int getPrecedence() {
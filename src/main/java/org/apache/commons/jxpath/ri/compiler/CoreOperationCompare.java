@@ -57,7 +57,15 @@ public abstract class CoreOperationCompare extends CoreOperation {
     }
 
     public Object computeValue(EvalContext context) {
-        return equal(context, args[0], args[1]) ? Boolean.TRUE : Boolean.FALSE;
+        return computeBoolean(context) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    public boolean computeBoolean(EvalContext context) {
+        return equal(context, args[0], args[1]);
+    }
+
+    public boolean isBooleanValued() {
+        return true;
     }
 
     protected int getPrecedence() {
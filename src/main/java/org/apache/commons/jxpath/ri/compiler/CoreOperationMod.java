@@ -17,7 +17,6 @@
 package org.apache.commons.jxpath.ri.compiler;
 
 import org.apache.commons.jxpath.ri.EvalContext;
-import org.apache.commons.jxpath.ri.InfoSetUtil;
 
 /**
  * Implementation of {@link Expression} for the operation "mod".
@@ -37,9 +36,17 @@ public class CoreOperationMod extends CoreOperation {
     }
 
     public Object computeValue(EvalContext context) {
-        long l = (long) InfoSetUtil.doubleValue(args[0].computeValue(context));
-        long r = (long) InfoSetUtil.doubleValue(args[1].computeValue(context));
-        return new Double(l % r);
+        return new Double(computeDouble(context));
+    }
+
+    public double computeDouble(EvalContext context) {
+        long l = (long) args[0].computeDouble(context);
+        long r = (long) args[1].computeDouble(context);
+        return l % r;
+    }
+
+    public boolean isNumberValued() {
+        return true;
     }
 
     protected int getPrecedence() {
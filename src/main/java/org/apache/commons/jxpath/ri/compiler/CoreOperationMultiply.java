@@ -17,7 +17,6 @@
 package org.apache.commons.jxpath.ri.compiler;
 
 import org.apache.commons.jxpath.ri.EvalContext;
-import org.apache.commons.jxpath.ri.InfoSetUtil;
 
 /**
  * Implementation of {@link Expression} for the operation "*".
@@ -37,9 +36,17 @@ public class CoreOperationMultiply extends CoreOperation {
     }
 
     public Object computeValue(EvalContext context) {
-        double l = InfoSetUtil.doubleValue(args[0].computeValue(context));
-        double r = InfoSetUtil.doubleValue(args[1].computeValue(context));
-        return new Double(l * r);
+        return new Double(computeDouble(context));
+    }
+
+    public double computeDouble(EvalContext context) {
+        double l = args[0].computeDouble(context);
+        double r = args[1].computeDouble(context);
+        return l * r;
+    }
+
+    public boolean isNumberValued() {
+        return true;
     }
 
     protected int getPrecedence() {
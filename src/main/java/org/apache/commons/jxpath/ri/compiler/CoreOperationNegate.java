@@ -17,7 +17,6 @@
 package org.apache.commons.jxpath.ri.compiler;
 
 import org.apache.commons.jxpath.ri.EvalContext;
-import org.apache.commons.jxpath.ri.InfoSetUtil;
 
 /**
  * Implementation of {@link Expression} for the operation unary "-".
@@ -36,8 +35,15 @@ public class CoreOperationNegate extends CoreOperation {
     }
 
     public Object computeValue(EvalContext context) {
-        double a = InfoSetUtil.doubleValue(args[0].computeValue(context));
-        return new Double(-a);
+        return new Double(computeDouble(context));
+    }
+
+    public double computeDouble(EvalContext context) {
+        return -args[0].computeDouble(context);
+    }
+
+    public boolean isNumberValued() {
+        return true;
     }
 
     protected int getPrecedence() {
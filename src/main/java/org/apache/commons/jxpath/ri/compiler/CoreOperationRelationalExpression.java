@@ -43,8 +43,15 @@ public abstract class CoreOperationRelationalExpression extends CoreOperation {
     }
 
     public final Object computeValue(EvalContext context) {
-        return compute(args[0].compute(context), args[1].compute(context))
-                ? Boolean.TRUE : Boolean.FALSE;
+        return computeBoolean(context) ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    public final boolean computeBoolean(EvalContext context) {
+        return compute(args[0].compute(context), args[1].compute(context));
+    }
+
+    public final boolean isBooleanValued() {
+        return true;
     }
 
     protected final int getPrecedence() {
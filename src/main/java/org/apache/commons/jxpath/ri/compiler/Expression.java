@@ -19,6 +19,7 @@ package org.apache.commons.jxpath.ri.compiler;
 import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.EvalContext;
+import org.apache.commons.jxpath.ri.InfoSetUtil;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.ri.QName;
 import org.apache.commons.jxpath.util.ValueUtils;
@@ -86,13 +87,84 @@ public abstract class Expression {
      */
     public abstract Object compute(EvalContext context);
 
+    /**
+     * Evaluates the expression and converts the result to a double the way
+     * arithmetic operations convert their operands.  Expressions that
+     * produce numbers override this to avoid allocating a Double.
+     * @param context evaluation context
+     * @return double
+     * @since JXPath 1.4
+     */
+    public double computeDouble(EvalContext context) {
+        return InfoSetUtil.doubleValue(computeValue(context));
+    }
+
+    /**
+     * Evaluates the expression and converts the result to a boolean the way
+     * logical operations convert their operands.  Expressions that produce
+     * booleans override this to avoid the Boolean result.
+     * @param context evaluation context
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    public boolean computeBoolean(EvalContext context) {
+        return InfoSetUtil.booleanValue(computeValue(context));
+    }
+
+    /**
+     * Learn whether {@link #computeValue(EvalContext)} always returns a
+     * Number, in which case {@link #computeDouble(EvalContext)} returns the
+     * same value.
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    public boolean isNumberValued() {
+        return false;
+    }
+
+    /**
+     * Learn whether {@link #computeValue(EvalContext)} always returns a
+     * Boolean, in which case {@link #computeBoolean(EvalContext)} returns the
+     * same value.
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    public boolean isBooleanValued() {
+        return false;
+    }
+
     /**
      * Iterate over the values from the specified context.
      * @param context evaluation context
      * @return value Iterator
      */
     public Iterator iterate(EvalContext context) {
+        return valueIterator(compute(context));
+    }
+
+    /**
+     * Iterate over a page of the values from the specified context: the
+     * values following the first <code>offset</code> ones, up to
+     * <code>limit</code> of them. The values skipped are not fetched, and
+     * no more nodes are looked for once the page is full.
+     * @param context evaluation context
+     * @param offset number of values to skip
+     * @param limit largest number of values to return
+     * @return value Iterator
+     * @since JXPath 1.4
+     */
+    public Iterator iterate(EvalContext context, int offset, int limit) {
         Object result = compute(context);
+        return ValueUtils.page(valueIterator(skip(result, offset)),
+            result instanceof EvalContext ? 0 : offset, limit);
+    }
+
+    /**
+     * Get an Iterator over the values of a computation result.
+     * @param result computed
+     * @return value Iterator
+     */
+    private static Iterator valueIterator(Object result) {
         if (result instanceof EvalContext) {
             return new ValueIterator((EvalContext) result);
         }
@@ -108,7 +180,48 @@ public abstract class Expression {
      * @return pointer Iterator
      */
     public Iterator iteratePointers(EvalContext context) {
+        return pointerIterator(compute(context), context);
+    }
+
+    /**
+     * Iterate over a page of the pointers from the specified context: the
+     * pointers following the first <code>offset</code> ones, up to
+     * <code>limit</code> of them. The nodes skipped are not fetched, and
+     * no more nodes are looked for once the page is full.
+     * @param context evaluation context
+     * @param offset number of pointers to skip
+     * @param limit largest number of pointers to return
+     * @return pointer Iterator
+     * @since JXPath 1.4
+     */
+    public Iterator iteratePointers(EvalContext context, int offset,
+            int limit) {
         Object result = compute(context);
+        return ValueUtils.page(pointerIterator(skip(result, offset), context),
+            result instanceof EvalContext ? 0 : offset, limit);
+    }
+
+    /**
+     * Skip the first nodes of a computation result if it is a context.
+     * @param result computed
+     * @param offset number of nodes to skip
+     * @return result
+     */
+    private static Object skip(Object result, int offset) {
+        if (result instanceof EvalContext && offset > 0) {
+            ((EvalContext) result).skip(offset);
+        }
+        return result;
+    }
+
+    /**
+     * Get an Iterator over the pointers of a computation result.
+     * @param result computed
+     * @param context evaluation context
+     * @return pointer Iterator
+     */
+    private static Iterator pointerIterator(Object result,
+            EvalContext context) {
         if (result == null) {
             return Collections.EMPTY_LIST.iterator();
         }
@@ -18,12 +18,17 @@ package org.apache.commons.jxpath.ri.compiler;
 
 import java.util.Arrays;
 
+import org.apache.commons.jxpath.ClassFunctions;
 import org.apache.commons.jxpath.Function;
+import org.apache.commons.jxpath.Functions;
+import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathFunctionNotFoundException;
 import org.apache.commons.jxpath.NodeSet;
+import org.apache.commons.jxpath.PackageFunctions;
 import org.apache.commons.jxpath.ri.EvalContext;
 import org.apache.commons.jxpath.ri.QName;
 import org.apache.commons.jxpath.ri.axes.NodeSetContext;
+import org.apache.commons.jxpath.util.MethodLookupUtils;
 
 /**
  * Represents an element of the parse tree representing an extension function
@@ -34,8 +39,17 @@ import org.apache.commons.jxpath.ri.axes.NodeSetContext;
  */
 public class ExtensionFunction extends Operation {
 
+    /** Maximum number of resolved functions kept by a call site */
+    private static final int MAX_RESOLVED = 4;
+
     private QName functionName;
 
+    /**
+     * Functions resolved by this call site, most recent first. The array is
+     * never modified once published.
+     */
+    private volatile ResolvedFunction[] resolved;
+
     /**
      * Create a new ExtensionFunction.
      * @param functionName name of the function
@@ -93,8 +107,15 @@ public class ExtensionFunction extends Operation {
             }
         }
 
-        Function function =
-            context.getRootContext().getFunction(functionName, parameters);
+        JXPathContext jxpathContext = context.getJXPathContext();
+        Function function = getResolvedFunction(jxpathContext, parameters);
+        if (function == null) {
+            function =
+                context.getRootContext().getFunction(functionName, parameters);
+            if (function != null) {
+                addResolvedFunction(jxpathContext, parameters, function);
+            }
+        }
         if (function == null) {
             throw new JXPathFunctionNotFoundException("No such function: "
                     + functionName + Arrays.asList(parameters));
@@ -112,4 +133,129 @@ public class ExtensionFunction extends Operation {
     private Object convert(Object object) {
         return object instanceof EvalContext ? ((EvalContext) object).getValue() : object;
     }
+
+    /**
+     * Find a function previously resolved by this call site for the same
+     * extension functions and argument types.
+     * @param jxpathContext context the function is invoked in
+     * @param parameters function arguments
+     * @return Function or <code>null</code>
+     */
+    private Function getResolvedFunction(JXPathContext jxpathContext,
+            Object[] parameters) {
+        ResolvedFunction[] entries = resolved;
+        if (entries != null) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].matches(jxpathContext, parameters)) {
+                    return entries[i].function;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remember a resolved function, if the resolution only depended on the
+     * extension functions installed and the classes of the arguments.
+     * @param jxpathContext context the function was invoked in
+     * @param parameters function arguments
+     * @param function resolved
+     */
+    private void addResolvedFunction(JXPathContext jxpathContext,
+            Object[] parameters, Function function) {
+        int depth = 0;
+        for (JXPathContext ctx = jxpathContext; ctx != null;
+                ctx = ctx.getParentContext()) {
+            Functions funcs = ctx.getFunctions();
+            if (funcs != null && !isResolvedByType(funcs)) {
+                return;
+            }
+            depth++;
+        }
+        Functions[] functions = new Functions[depth];
+        depth = 0;
+        for (JXPathContext ctx = jxpathContext; ctx != null;
+                ctx = ctx.getParentContext()) {
+            functions[depth++] = ctx.getFunctions();
+        }
+
+        Class[] types = MethodLookupUtils.getParameterClasses(parameters);
+        if (types == null) {
+            // the function chosen may depend on the contents of arguments
+            return;
+        }
+
+        ResolvedFunction[] entries = resolved;
+        int count = entries == null ? 0 : Math.min(entries.length, MAX_RESOLVED - 1);
+        ResolvedFunction[] newEntries = new ResolvedFunction[count + 1];
+        newEntries[0] = new ResolvedFunction(functions, types, function);
+        if (count > 0) {
+            System.arraycopy(entries, 0, newEntries, 1, count);
+        }
+        resolved = newEntries;
+    }
+
+    /**
+     * Learn whether the function the specified Functions object returns
+     * only depends on the classes of the arguments. Subclasses may override
+     * <code>getFunction</code>, so only the classes themselves qualify.
+     * @param functions to check
+     * @return boolean
+     */
+    private static boolean isResolvedByType(Functions functions) {
+        Class type = functions.getClass();
+        return type == PackageFunctions.class || type == ClassFunctions.class;
+    }
+
+    /**
+     * A function resolved for a chain of extension functions and a list of
+     * argument classes.
+     */
+    private static final class ResolvedFunction {
+        private final Functions[] functions;
+        private final Class[] types;
+        private final Function function;
+
+        /**
+         * Create a new ResolvedFunction.
+         * @param functions extension functions of the context and its parents
+         * @param types argument classes
+         * @param function resolved
+         */
+        private ResolvedFunction(Functions[] functions, Class[] types,
+                Function function) {
+            this.functions = functions;
+            this.types = types;
+            this.function = function;
+        }
+
+        /**
+         * Learn whether this function applies to a new invocation.
+         * @param jxpathContext context the function is invoked in
+         * @param parameters function arguments
+         * @return boolean
+         */
+        private boolean matches(JXPathContext jxpathContext,
+                Object[] parameters) {
+            int length = parameters == null ? 0 : parameters.length;
+            if (length != types.length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (parameters[i] == null
+                        || parameters[i].getClass() != types[i]) {
+                    return false;
+                }
+            }
+            int depth = 0;
+            for (JXPathContext ctx = jxpathContext; ctx != null;
+                    ctx = ctx.getParentContext()) {
+                if (depth == functions.length
+                        || ctx.getFunctions() != functions[depth++]) {
+                    return false;
+                }
+            }
+            return depth == functions.length;
+        }
+    }
 }
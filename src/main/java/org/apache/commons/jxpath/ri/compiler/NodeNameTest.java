@@ -16,6 +16,11 @@
  */
 package org.apache.commons.jxpath.ri.compiler;
 
+import java.util.Map;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.NamespaceResolver;
 import org.apache.commons.jxpath.ri.QName;
 
 /**
@@ -60,6 +65,36 @@ public class NodeNameTest extends NodeTest {
         return namespaceURI;
     }
 
+    /**
+     * Get a NodeNameTest whose prefix is bound to the namespace URI it maps
+     * to in the specified context. The bound test is cached in a
+     * {@link NamespaceResolver#getBindingTable(String) binding table} of
+     * the context's namespace resolver, so repeated evaluations of a
+     * compiled expression neither allocate a new test nor look up the
+     * prefix again, including against contexts that share registrations.
+     * @param context JXPathContext used to resolve the prefix
+     * @return NodeNameTest; <code>this</code> if the name has no prefix
+     * @since JXPath 1.4
+     */
+    public NodeNameTest bindNamespace(JXPathContext context) {
+        String prefix = qname.getPrefix();
+        if (prefix == null) {
+            return this;
+        }
+        if (!(context instanceof JXPathContextReferenceImpl)) {
+            return new NodeNameTest(qname, context.getNamespaceURI(prefix));
+        }
+        NamespaceResolver resolver =
+            ((JXPathContextReferenceImpl) context).getCurrentNamespaceResolver();
+        Map table = resolver.getBindingTable(prefix);
+        NodeNameTest bound = (NodeNameTest) table.get(qname);
+        if (bound == null) {
+            bound = new NodeNameTest(qname, resolver.getNamespaceURI(prefix));
+            table.put(qname, bound);
+        }
+        return bound;
+    }
+
     /**
      * Learn whether this is a wildcard test.
      * @return <code>true</code> if the node name is "*".
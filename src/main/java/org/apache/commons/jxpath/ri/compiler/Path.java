@@ -16,10 +16,13 @@
  */
 package org.apache.commons.jxpath.ri.compiler;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.Compiler;
 import org.apache.commons.jxpath.ri.EvalContext;
-import org.apache.commons.jxpath.ri.QName;
 import org.apache.commons.jxpath.ri.axes.AncestorContext;
 import org.apache.commons.jxpath.ri.axes.AttributeContext;
 import org.apache.commons.jxpath.ri.axes.ChildContext;
@@ -44,12 +47,21 @@ public abstract class Path extends Expression {
     private boolean basicKnown = false;
     private boolean basic;
 
+    /**
+     * A rewound context chain for all steps, kept for the next search.
+     * Taking it out makes sure that it is used by one search at a time.
+     */
+    private final AtomicReference spareChain = new AtomicReference();
+    /** Whether the context chain for all steps can be rewound and reused */
+    private volatile boolean chainReusable;
+
     /**
      * Create a new Path.
      * @param steps that compose the Path
      */
     public Path(Step[] steps) {
         this.steps = steps;
+        chainReusable = steps != null && !hasPrefixedStep();
     }
 
     /**
@@ -197,13 +209,16 @@ public abstract class Path extends Expression {
      * @return Pointer
      */
     protected Pointer searchForPath(EvalContext context) {
-        EvalContext ctx = buildContextChain(context, steps.length, true);
-        Pointer pointer = ctx.getSingleNodePointer();
+        ContextChain chain = acquireContextChain(context);
+        Pointer pointer = chain.getLast().getSingleNodePointer();
+        releaseContextChain(chain);
 
         if (pointer != null) {
             return pointer;
         }
 
+        EvalContext ctx;
+
         for (int i = steps.length; --i > 0;) {
             if (!isSimpleStep(steps[i])) {
                 return null;
@@ -249,31 +264,195 @@ public abstract class Path extends Expression {
             EvalContext context,
             int stepCount,
             boolean createInitialContext) {
+        return buildContextChain(context, stepCount, createInitialContext, null);
+    }
+
+    /**
+     * Build the contexts for a range of steps on top of a context that
+     * produces the nodes the first of these steps starts from.
+     * @param context evaluation context
+     * @param fromStep index of the first step
+     * @param toStep index after the last step
+     * @return context of the last step
+     */
+    EvalContext buildContextChain(EvalContext context, int fromStep, int toStep) {
+        for (int i = fromStep; i < toStep; i++) {
+            context = buildStepContext(context, i, null);
+        }
+        return context;
+    }
+
+    /**
+     * Build a context from a chain of contexts, optionally recording the
+     * contexts created.
+     * @param context evaluation context
+     * @param stepCount number of steps to descend
+     * @param createInitialContext whether to create the initial context
+     * @param created List receiving the contexts created, or <code>null</code>
+     * @return created context
+     */
+    private EvalContext buildContextChain(
+            EvalContext context,
+            int stepCount,
+            boolean createInitialContext,
+            List created) {
         if (createInitialContext) {
             context = new InitialContext(context);
+            if (created != null) {
+                created.add(context);
+            }
         }
         if (steps.length == 0) {
             return context;
         }
         for (int i = 0; i < stepCount; i++) {
-            context =
-                createContextForStep(
-                    context,
-                    steps[i].getAxis(),
-                    steps[i].getNodeTest());
-            Expression[] predicates = steps[i].getPredicates();
-            if (predicates != null) {
-                for (int j = 0; j < predicates.length; j++) {
-                    if (j != 0) {
-                        context = new UnionContext(context, new EvalContext[]{context});
+            context = buildStepContext(context, i, created);
+        }
+        return context;
+    }
+
+    /**
+     * Build the contexts for one step and its predicates.
+     * @param context evaluation context
+     * @param step index of the step
+     * @param created List receiving the contexts created, or <code>null</code>
+     * @return context of the step
+     */
+    private EvalContext buildStepContext(EvalContext context, int step,
+            List created) {
+        context =
+            createContextForStep(
+                context,
+                steps[step].getAxis(),
+                steps[step].getNodeTest());
+        if (created != null) {
+            created.add(context);
+        }
+        Expression[] predicates = steps[step].getPredicates();
+        if (predicates != null) {
+            for (int j = 0; j < predicates.length; j++) {
+                if (j != 0) {
+                    context = new UnionContext(context, new EvalContext[]{context});
+                    if (created != null) {
+                        created.add(context);
                     }
-                    context = new PredicateContext(context, predicates[j]);
+                }
+                context = new PredicateContext(context, predicates[j]);
+                if (created != null) {
+                    created.add(context);
                 }
             }
         }
         return context;
     }
 
+    /**
+     * Get a context chain for all steps, starting from the current node of
+     * the specified context. The chain left by a previous search is reused
+     * if there is one.
+     * @param context evaluation context
+     * @return ContextChain
+     */
+    private ContextChain acquireContextChain(EvalContext context) {
+        ContextChain chain = (ContextChain) spareChain.getAndSet(null);
+        if (chain != null) {
+            chain.start(context);
+            return chain;
+        }
+        if (!chainReusable) {
+            return new ContextChain(
+                buildContextChain(context, steps.length, true, null), null);
+        }
+        ArrayList created = new ArrayList();
+        EvalContext last = buildContextChain(context, steps.length, true, created);
+        return new ContextChain(last,
+            (EvalContext[]) created.toArray(new EvalContext[created.size()]));
+    }
+
+    /**
+     * Rewind a context chain after a search and keep it for the next one,
+     * if all of its contexts support it.
+     * @param chain to release
+     */
+    private void releaseContextChain(ContextChain chain) {
+        if (chain.rewind()) {
+            spareChain.set(chain);
+        }
+        else {
+            chainReusable = false;
+        }
+    }
+
+    /**
+     * Learn whether any step tests for a prefixed name. The contexts created
+     * for such a step are bound to the namespaces of a particular
+     * JXPathContext and cannot be kept between searches.
+     * @return boolean
+     */
+    private boolean hasPrefixedStep() {
+        for (int i = 0; i < steps.length; i++) {
+            NodeTest nodeTest = steps[i].getNodeTest();
+            if (nodeTest instanceof NodeNameTest
+                    && ((NodeNameTest) nodeTest).getNodeName().getPrefix() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The contexts built for the steps of a path, from the initial context
+     * to the last one.
+     */
+    private static final class ContextChain {
+        private final EvalContext last;
+        private final EvalContext[] contexts;
+
+        /**
+         * Create a new ContextChain.
+         * @param last context of the last step
+         * @param contexts all contexts in the chain, <code>null</code> if
+         *        it is not to be reused
+         */
+        private ContextChain(EvalContext last, EvalContext[] contexts) {
+            this.last = last;
+            this.contexts = contexts;
+        }
+
+        /**
+         * Get the context of the last step.
+         * @return EvalContext
+         */
+        private EvalContext getLast() {
+            return last;
+        }
+
+        /**
+         * Start a new search from the current node of a context.
+         * @param context evaluation context
+         */
+        private void start(EvalContext context) {
+            ((InitialContext) contexts[0]).rewind(context);
+        }
+
+        /**
+         * Rewind all contexts, dropping the nodes visited.
+         * @return <code>false</code> if the chain cannot be reused
+         */
+        private boolean rewind() {
+            if (contexts == null) {
+                return false;
+            }
+            ((InitialContext) contexts[0]).rewind(null);
+            for (int i = 1; i < contexts.length; i++) {
+                if (!contexts[i].rewind()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Different axes are serviced by different contexts. This method
      * allocates the right context for the supplied step.
@@ -287,13 +466,8 @@ public abstract class Path extends Expression {
         int axis,
         NodeTest nodeTest) {
         if (nodeTest instanceof NodeNameTest) {
-            QName qname = ((NodeNameTest) nodeTest).getNodeName();
-            String prefix = qname.getPrefix();
-            if (prefix != null) {
-                String namespaceURI = context.getJXPathContext()
-                        .getNamespaceURI(prefix);
-                nodeTest = new NodeNameTest(qname, namespaceURI);
-            }
+            nodeTest = ((NodeNameTest) nodeTest)
+                    .bindNamespace(context.getJXPathContext());
         }
 
         switch (axis) {
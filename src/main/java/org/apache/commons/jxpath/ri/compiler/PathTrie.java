@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.compiler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.jxpath.BasicNodeSet;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.ri.Compiler;
+import org.apache.commons.jxpath.ri.EvalContext;
+import org.apache.commons.jxpath.ri.axes.InitialContext;
+import org.apache.commons.jxpath.ri.axes.NodeSetContext;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Finds the first node selected by each of a number of location paths,
+ * walking the leading steps that paths have in common once for all of them.
+ * <p>
+ * The paths are arranged in a tree keyed by their steps. The nodes reached
+ * by a step shared by several paths are walked once, one at a time; each
+ * path continues from every such node with its own remaining steps until
+ * its first node is found. The walk stops as soon as all the paths sharing
+ * the step are settled, so no more of the shared nodes are read than a
+ * separate search of the slowest of them would read. Only child, attribute
+ * and self steps are shared, since the nodes they select come in the same
+ * order however they are walked, so the node found is the one a separate
+ * search would find.
+ * </p>
+ * <p>
+ * Simple paths (see {@link Path#isSimplePath()}) and other expressions do
+ * not take part; neither does a path for which no node is found, or whose
+ * search fails. Those are left to be evaluated on their own, which means
+ * that the shared steps of a path that matches nothing are walked a second
+ * time: the separate evaluation is what produces the null pointer or the
+ * exception a path without a match must yield.
+ * </p>
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class PathTrie {
+    private final int count;
+    private final Branch relativeRoot = new Branch(0);
+    private final Branch absoluteRoot = new Branch(0);
+
+    /**
+     * Create a new PathTrie.
+     * @param expressions to search for
+     */
+    public PathTrie(Expression[] expressions) {
+        count = expressions.length;
+        for (int i = 0; i < expressions.length; i++) {
+            if (!(expressions[i] instanceof LocationPath)) {
+                continue;
+            }
+            LocationPath path = (LocationPath) expressions[i];
+            Step[] steps = path.getSteps();
+            if (steps == null || steps.length < 2 || path.isSimplePath()) {
+                continue;
+            }
+            Branch branch = path.isAbsolute() ? absoluteRoot : relativeRoot;
+            branch.add(i, path);
+            // The last step is never shared: the first node of a path is
+            // taken from its last context as it is
+            for (int s = 0; s < steps.length - 1 && isShareable(steps[s]); s++) {
+                branch = branch.getChild(steps[s]);
+                branch.add(i, path);
+            }
+            branch.end(i, path);
+        }
+    }
+
+    /**
+     * Learn whether a step may be walked once for several paths.
+     * @param step to check
+     * @return boolean
+     */
+    private static boolean isShareable(Step step) {
+        int axis = step.getAxis();
+        return axis == Compiler.AXIS_CHILD || axis == Compiler.AXIS_ATTRIBUTE
+                || axis == Compiler.AXIS_SELF;
+    }
+
+    /**
+     * Find the first node of each path.
+     * @param context evaluation context
+     * @return NodePointer[] with, at the index of each expression, the node
+     *         found or <code>null</code> if it must be evaluated on its own
+     */
+    public NodePointer[] search(EvalContext context) {
+        NodePointer[] result = new NodePointer[count];
+        boolean[] settled = new boolean[count];
+        if (!relativeRoot.paths.isEmpty()) {
+            search(relativeRoot, context, new InitialContext(context), result,
+                settled);
+        }
+        if (!absoluteRoot.paths.isEmpty()) {
+            search(absoluteRoot, context, new InitialContext(
+                context.getRootContext().getAbsoluteRootContext()), result,
+                settled);
+        }
+        return result;
+    }
+
+    /**
+     * Search from the nodes reached by the steps leading to a branch, one
+     * node at a time, until all the paths going through the branch are
+     * settled or there are no more nodes.
+     * @param branch current branch
+     * @param context evaluation context
+     * @param nodes context producing the nodes
+     * @param result NodePointer[]
+     * @param settled whether the search for each path is over
+     */
+    private void search(Branch branch, EvalContext context, EvalContext nodes,
+            NodePointer[] result, boolean[] settled) {
+        try {
+            while (nodes.nextSet()) {
+                while (nodes.nextNode()) {
+                    BasicNodeSet nodeSet = new BasicNodeSet();
+                    nodeSet.add((NodePointer) nodes.getCurrentNodePointer()
+                            .clone());
+                    search(branch, context, nodeSet, result, settled);
+                    if (branch.isSettled(settled)) {
+                        return;
+                    }
+                }
+            }
+        }
+        catch (JXPathException ex) {
+            // Leave the paths to be evaluated, and fail, on their own
+            branch.settle(settled);
+        }
+    }
+
+    /**
+     * Search from one of the nodes reached by the steps leading to a branch.
+     * @param branch current branch
+     * @param context evaluation context
+     * @param nodeSet the node
+     * @param result NodePointer[]
+     * @param settled whether the search for each path is over
+     */
+    private void search(Branch branch, EvalContext context,
+            BasicNodeSet nodeSet, NodePointer[] result, boolean[] settled) {
+        for (Iterator it = branch.children.values().iterator(); it.hasNext();) {
+            Branch child = (Branch) it.next();
+            if (child.isSettled(settled)) {
+                continue;
+            }
+            if (child.paths.size() > 1) {
+                LocationPath path = (LocationPath) child.paths.get(0);
+                search(child, context, path.buildContextChain(
+                    new NodeSetContext(context, nodeSet), branch.depth,
+                    child.depth), result, settled);
+            }
+            else {
+                search(context, nodeSet, branch.depth,
+                    ((Integer) child.indices.get(0)).intValue(),
+                    (LocationPath) child.paths.get(0), result, settled);
+            }
+        }
+        for (int i = 0; i < branch.endIndices.size(); i++) {
+            int index = ((Integer) branch.endIndices.get(i)).intValue();
+            if (!settled[index]) {
+                search(context, nodeSet, branch.depth, index,
+                    (LocationPath) branch.endPaths.get(i), result, settled);
+            }
+        }
+    }
+
+    /**
+     * Search for the first node of a path from one of the nodes reached by
+     * its leading steps.
+     * @param context evaluation context
+     * @param nodeSet the node
+     * @param depth number of steps leading to the node
+     * @param index of the path
+     * @param path to search
+     * @param result NodePointer[]
+     * @param settled whether the search for each path is over
+     */
+    private void search(EvalContext context, BasicNodeSet nodeSet, int depth,
+            int index, LocationPath path, NodePointer[] result,
+            boolean[] settled) {
+        try {
+            EvalContext ctx = path.buildContextChain(
+                new NodeSetContext(context, nodeSet), depth,
+                path.getSteps().length);
+            result[index] = (NodePointer) ctx.getSingleNodePointer();
+            settled[index] = result[index] != null;
+        }
+        catch (JXPathException ex) {
+            // Leave the path to be evaluated, and fail, on its own
+            result[index] = null;
+            settled[index] = true;
+        }
+    }
+
+    /**
+     * The paths that share the leading steps up to a certain depth.
+     */
+    private static final class Branch {
+        private final int depth;
+        private final Map children = new LinkedHashMap();
+        private final List paths = new ArrayList();
+        private final List indices = new ArrayList();
+        private final List endPaths = new ArrayList();
+        private final List endIndices = new ArrayList();
+
+        /**
+         * Create a new Branch.
+         * @param depth number of steps leading to it
+         */
+        private Branch(int depth) {
+            this.depth = depth;
+        }
+
+        /**
+         * Add a path going through this branch.
+         * @param index of the path
+         * @param path to add
+         */
+        private void add(int index, LocationPath path) {
+            indices.add(new Integer(index));
+            paths.add(path);
+        }
+
+        /**
+         * Add a path whose shared steps end with this branch.
+         * @param index of the path
+         * @param path to add
+         */
+        private void end(int index, LocationPath path) {
+            endIndices.add(new Integer(index));
+            endPaths.add(path);
+        }
+
+        /**
+         * Learn whether the search for all the paths going through this
+         * branch is over.
+         * @param settled whether the search for each path is over
+         * @return boolean
+         */
+        private boolean isSettled(boolean[] settled) {
+            for (int i = 0; i < indices.size(); i++) {
+                if (!settled[((Integer) indices.get(i)).intValue()]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * End the search for all the paths going through this branch.
+         * @param settled whether the search for each path is over
+         */
+        private void settle(boolean[] settled) {
+            for (int i = 0; i < indices.size(); i++) {
+                settled[((Integer) indices.get(i)).intValue()] = true;
+            }
+        }
+
+        /**
+         * Get the branch for the next step.
+         * @param step next step
+         * @return Branch
+         */
+        private Branch getChild(Step step) {
+            String key = step.toString();
+            Branch child = (Branch) children.get(key);
+            if (child == null) {
+                child = new Branch(depth + 1);
+                children.put(key, child);
+            }
+            return child;
+        }
+    }
+}
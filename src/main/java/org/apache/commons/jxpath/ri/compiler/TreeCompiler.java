@@ -36,7 +36,9 @@ public class TreeCompiler implements Compiler {
     }
 
     public Object qname(String prefix, String name) {
-        return new QName(prefix, name);
+        // Interned so that names match model names by reference
+        return new QName(prefix == null ? null : prefix.intern(),
+                name.intern());
     }
 
     public Object sum(Object[] arguments) {
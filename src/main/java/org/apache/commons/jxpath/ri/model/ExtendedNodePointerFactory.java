@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model;
+
+/**
+ * A NodePointerFactory that can tell by the class of an object whether
+ * it will create a NodePointer for it. The reference implementation uses
+ * this to look up the applicable factories once per class rather than
+ * querying every registered factory for every object.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public interface ExtendedNodePointerFactory extends NodePointerFactory {
+
+    /**
+     * Returns 1 if this factory creates a NodePointer for every non-null
+     * object of the specified class, -1 if it never creates one and 0 if
+     * that depends on the object itself.
+     * @param type class of the object
+     * @return int
+     */
+    int getApplicabilityHint(Class type);
+}
@@ -27,6 +27,7 @@ import org.apache.commons.jxpath.JXPathNotFoundException;
 import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.Compiler;
+import org.apache.commons.jxpath.ri.InfoSetUtil;
 import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
 import org.apache.commons.jxpath.ri.NamespaceResolver;
 import org.apache.commons.jxpath.ri.QName;
@@ -82,7 +83,7 @@ public abstract class NodePointer implements Pointer {
         }
 
         NodePointerFactory[] factories =
-            JXPathContextReferenceImpl.getNodePointerFactories();
+            JXPathContextReferenceImpl.getNodePointerFactories(bean.getClass());
         for (int i = 0; i < factories.length; i++) {
             pointer = factories[i].createNodePointer(name, bean, locale);
             if (pointer != null) {
@@ -106,8 +107,9 @@ public abstract class NodePointer implements Pointer {
         NodePointer parent,
         QName name,
         Object bean) {
-        NodePointerFactory[] factories =
-            JXPathContextReferenceImpl.getNodePointerFactories();
+        NodePointerFactory[] factories = bean == null
+            ? JXPathContextReferenceImpl.getNodePointerFactories()
+            : JXPathContextReferenceImpl.getNodePointerFactories(bean.getClass());
         for (int i = 0; i < factories.length; i++) {
             NodePointer pointer =
                 factories[i].createNodePointer(parent, name, bean);
@@ -281,6 +283,18 @@ public abstract class NodePointer implements Pointer {
         return getNode();
     }
 
+    /**
+     * Returns the value of this node converted to a double, the way the
+     * XPath <code>number()</code> function converts it.  Pointers to
+     * elements of primitive arrays override this to read the element
+     * without boxing it.
+     * @return double
+     * @since JXPath 1.4
+     */
+    public double getDoubleValue() {
+        return InfoSetUtil.doubleValue(getValue());
+    }
+
     /**
      * If this pointer manages a transparent container, like a variable,
      * this method returns the pointer to the contents.
@@ -132,12 +132,14 @@ public class BeanPointer extends PropertyOwnerPointer {
             return false;
         }
 
+        Object bean = getBaseValue();
+        Object otherBean = other.getBaseValue();
         if (bean instanceof Number
                 || bean instanceof String
                 || bean instanceof Boolean) {
-            return bean.equals(other.bean);
+            return bean.equals(otherBean);
         }
-        return bean == other.bean;
+        return bean == otherBean;
     }
 
     /**
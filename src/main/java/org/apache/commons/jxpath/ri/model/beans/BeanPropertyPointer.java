@@ -19,10 +19,13 @@ package org.apache.commons.jxpath.ri.model.beans;
 import java.beans.IndexedPropertyDescriptor;
 import java.beans.PropertyDescriptor;
 
+import org.apache.commons.jxpath.JXPathBasicBeanInfo;
 import org.apache.commons.jxpath.JXPathBeanInfo;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathInvalidAccessException;
 import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.util.CollectionCursor;
+import org.apache.commons.jxpath.util.PropertyAccessor;
 import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
@@ -43,6 +46,8 @@ public class BeanPropertyPointer extends PropertyPointer {
     private transient String[] names;
     private transient PropertyDescriptor[] propertyDescriptors;
     private transient PropertyDescriptor propertyDescriptor;
+    private transient PropertyAccessor propertyAccessor;
+    private transient CollectionCursor cursor;
 
     /**
      * Create a new BeanPropertyPointer.
@@ -66,7 +71,7 @@ public class BeanPropertyPointer extends PropertyPointer {
         if (beanInfo.isAtomic()) {
             return 0;
         }
-        return getPropertyDescriptors().length;
+        return getPropertyNames().length;
     }
 
     /**
@@ -74,6 +79,9 @@ public class BeanPropertyPointer extends PropertyPointer {
      * @return String[]
      */
     public String[] getPropertyNames() {
+        if (names == null && beanInfo instanceof JXPathBasicBeanInfo) {
+            names = ((JXPathBasicBeanInfo) beanInfo).getPropertyNames();
+        }
         if (names == null) {
             PropertyDescriptor[] pds = getPropertyDescriptors();
             names = new String[pds.length];
@@ -102,6 +110,7 @@ public class BeanPropertyPointer extends PropertyPointer {
             super.setPropertyIndex(index);
             propertyName = null;
             propertyDescriptor = null;
+            propertyAccessor = null;
             baseValue = UNINITIALIZED;
             value = UNINITIALIZED;
         }
@@ -113,11 +122,11 @@ public class BeanPropertyPointer extends PropertyPointer {
      */
     public Object getBaseValue() {
         if (baseValue == UNINITIALIZED) {
-            PropertyDescriptor pd = getPropertyDescriptor();
-            if (pd == null) {
+            PropertyAccessor accessor = getPropertyAccessor();
+            if (accessor == null) {
                 return null;
             }
-            baseValue = ValueUtils.getValue(getBean(), pd);
+            baseValue = accessor.getValue(getBean());
         }
         return baseValue;
     }
@@ -149,18 +158,54 @@ public class BeanPropertyPointer extends PropertyPointer {
                 value = ValueUtils.getValue(getBaseValue());
             }
             else {
-                PropertyDescriptor pd = getPropertyDescriptor();
-                if (pd == null) {
+                PropertyAccessor accessor = getPropertyAccessor();
+                if (accessor == null) {
                     value = null;
                 }
+                else if (accessor.getPropertyDescriptor()
+                        instanceof IndexedPropertyDescriptor) {
+                    value = accessor.getValue(getBean(), index);
+                }
                 else {
-                    value = ValueUtils.getValue(getBean(), pd, index);
+                    Object collection = ValueUtils.getValue(getBaseValue());
+                    cursor = CollectionCursor.getCursor(collection, cursor);
+                    value = cursor == null
+                        ? ValueUtils.getValue(collection, index)
+                        : cursor.get(index);
                 }
             }
         }
         return value;
     }
 
+    public double getDoubleValue() {
+        if (index != WHOLE_COLLECTION && index >= 0
+                && !(getPropertyDescriptor() instanceof IndexedPropertyDescriptor)) {
+            Object base = getBaseValue();
+            if (ValueUtils.isPrimitiveNumberArray(base)
+                    && index < ValueUtils.getLength(base)) {
+                return ValueUtils.getDoubleValue(base, index);
+            }
+        }
+        return super.getDoubleValue();
+    }
+
+    public NodePointer getImmediateValuePointer() {
+        if (index != WHOLE_COLLECTION
+                && !(getPropertyDescriptor() instanceof IndexedPropertyDescriptor)) {
+            Object base = getBaseValue();
+            if (ValueUtils.isPrimitiveNumberArray(base)) {
+                NodePointer pointer =
+                    PrimitiveArrayElementPointer.newElementPointer(
+                        (NodePointer) clone(), getName(), base, index);
+                if (pointer != null) {
+                    return pointer;
+                }
+            }
+        }
+        return super.getImmediateValuePointer();
+    }
+
     protected boolean isActualProperty() {
         return getPropertyDescriptor() != null;
     }
@@ -218,17 +263,17 @@ public class BeanPropertyPointer extends PropertyPointer {
      * @param value value to set
      */
     public void setValue(Object value) {
-        PropertyDescriptor pd = getPropertyDescriptor();
-        if (pd == null) {
+        PropertyAccessor accessor = getPropertyAccessor();
+        if (accessor == null) {
             throw new JXPathInvalidAccessException(
                 "Cannot set property: " + asPath() + " - no such property");
         }
 
         if (index == WHOLE_COLLECTION) {
-            ValueUtils.setValue(getBean(), pd, value);
+            accessor.setValue(getBean(), value);
         }
         else {
-            ValueUtils.setValue(getBean(), pd, index, value);
+            accessor.setValue(getBean(), index, value);
         }
         this.value = value;
     }
@@ -250,7 +295,7 @@ public class BeanPropertyPointer extends PropertyPointer {
             Object o = getBaseValue();
             Object collection = ValueUtils.remove(getBaseValue(), index);
             if (collection != o) {
-                ValueUtils.setValue(getBean(), getPropertyDescriptor(), collection);
+                getPropertyAccessor().setValue(getBean(), collection);
             }
         }
         else if (index == 0) {
@@ -265,12 +310,44 @@ public class BeanPropertyPointer extends PropertyPointer {
      */
     public String getPropertyName() {
         if (propertyName == null) {
+            int inx = getPropertyIndex();
+            String[] names = getPropertyNames();
+            if (inx >= 0 && inx < names.length) {
+                propertyName = names[inx];
+            }
+            else {
+                PropertyDescriptor pd = getPropertyDescriptor();
+                if (pd != null) {
+                    propertyName = pd.getName();
+                }
+            }
+        }
+        return propertyName != null ? propertyName : "*";
+    }
+
+    /**
+     * Finds the pre-resolved accessors of the current property.
+     * @return PropertyAccessor
+     */
+    private PropertyAccessor getPropertyAccessor() {
+        if (propertyAccessor == null) {
             PropertyDescriptor pd = getPropertyDescriptor();
             if (pd != null) {
-                propertyName = pd.getName();
+                if (beanInfo instanceof JXPathBasicBeanInfo) {
+                    JXPathBasicBeanInfo basicBeanInfo =
+                        (JXPathBasicBeanInfo) beanInfo;
+                    int inx = getPropertyIndex();
+                    propertyAccessor = inx == UNSPECIFIED_PROPERTY
+                        ? basicBeanInfo.getPropertyAccessor(pd.getName())
+                        : basicBeanInfo.getPropertyAccessor(inx);
+                }
+                if (propertyAccessor == null
+                        || propertyAccessor.getPropertyDescriptor() != pd) {
+                    propertyAccessor = new PropertyAccessor(pd);
+                }
             }
         }
-        return propertyName != null ? propertyName : "*";
+        return propertyAccessor;
     }
 
     /**
@@ -286,19 +363,34 @@ public class BeanPropertyPointer extends PropertyPointer {
                     beanInfo.getPropertyDescriptor(propertyName);
             }
             else {
-                PropertyDescriptor[] propertyDescriptors =
-                    getPropertyDescriptors();
-                if (inx >= 0 && inx < propertyDescriptors.length) {
-                    propertyDescriptor = propertyDescriptors[inx];
+                if (inx < 0 || inx >= getPropertyNames().length) {
+                    propertyDescriptor = null;
+                }
+                else if (beanInfo instanceof JXPathBasicBeanInfo) {
+                    propertyDescriptor = ((JXPathBasicBeanInfo) beanInfo)
+                            .getPropertyDescriptor(inx);
                 }
                 else {
-                    propertyDescriptor = null;
+                    propertyDescriptor = getPropertyDescriptors()[inx];
                 }
             }
         }
         return propertyDescriptor;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The clone gets its own collection cursor, as cursors are not thread
+     * safe and clones may be handed to other threads.
+     * </p>
+     */
+    public Object clone() {
+        BeanPropertyPointer pointer = (BeanPropertyPointer) super.clone();
+        pointer.cursor = null;
+        return pointer;
+    }
+
     /**
      * Get all PropertyDescriptors.
      * @return PropertyDescriptor[]
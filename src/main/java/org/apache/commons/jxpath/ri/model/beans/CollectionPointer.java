@@ -27,6 +27,7 @@ import org.apache.commons.jxpath.ri.compiler.NodeTest;
 import org.apache.commons.jxpath.ri.compiler.NodeTypeTest;
 import org.apache.commons.jxpath.ri.model.NodeIterator;
 import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.util.CollectionCursor;
 import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
@@ -38,6 +39,7 @@ import org.apache.commons.jxpath.util.ValueUtils;
 public class CollectionPointer extends NodePointer {
     private Object collection;
     private NodePointer valuePointer;
+    private transient CollectionCursor cursor;
 
     private static final long serialVersionUID = 8620254915563256588L;
 
@@ -87,8 +89,22 @@ public class CollectionPointer extends NodePointer {
     }
 
     public Object getImmediateNode() {
-        return index == WHOLE_COLLECTION ? ValueUtils.getValue(collection)
-                : ValueUtils.getValue(collection, index);
+        if (index == WHOLE_COLLECTION) {
+            return ValueUtils.getValue(collection);
+        }
+        Object value = ValueUtils.getValue(collection);
+        cursor = CollectionCursor.getCursor(value, cursor);
+        return cursor == null ? ValueUtils.getValue(value, index)
+                : cursor.get(index);
+    }
+
+    public double getDoubleValue() {
+        if (index != WHOLE_COLLECTION && index >= 0
+                && ValueUtils.isPrimitiveNumberArray(collection)
+                && index < ValueUtils.getLength(collection)) {
+            return ValueUtils.getDoubleValue(collection, index);
+        }
+        return super.getDoubleValue();
     }
 
     public void setValue(Object value) {
@@ -111,9 +127,13 @@ public class CollectionPointer extends NodePointer {
                 valuePointer = this;
             }
             else {
-                Object value = getImmediateNode();
-                valuePointer =
-                    NodePointer.newChildNodePointer(this, getName(), value);
+                valuePointer = PrimitiveArrayElementPointer.newElementPointer(
+                    this, getName(), collection, index);
+                if (valuePointer == null) {
+                    Object value = getImmediateNode();
+                    valuePointer =
+                        NodePointer.newChildNodePointer(this, getName(), value);
+                }
             }
         }
         return valuePointer;
@@ -211,6 +231,19 @@ public class CollectionPointer extends NodePointer {
         return pointer1.getIndex() - pointer2.getIndex();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The clone gets its own collection cursor, as cursors are not thread
+     * safe and clones may be handed to other threads.
+     * </p>
+     */
+    public Object clone() {
+        CollectionPointer pointer = (CollectionPointer) super.clone();
+        pointer.cursor = null;
+        return pointer;
+    }
+
     public String asPath() {
         StringBuffer buffer = new StringBuffer();
         NodePointer parent = getImmediateParentPointer();
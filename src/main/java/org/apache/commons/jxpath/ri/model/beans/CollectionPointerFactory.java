@@ -16,11 +16,13 @@
  */
 package org.apache.commons.jxpath.ri.model.beans;
 
+import java.util.Collection;
 import java.util.Locale;
 
+import org.apache.commons.jxpath.Container;
 import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ExtendedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
-import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
@@ -29,7 +31,7 @@ import org.apache.commons.jxpath.util.ValueUtils;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class CollectionPointerFactory implements NodePointerFactory {
+public class CollectionPointerFactory implements ExtendedNodePointerFactory {
 
     /** factory order constant */
     public static final int COLLECTION_POINTER_FACTORY_ORDER = 10;
@@ -46,4 +48,12 @@ public class CollectionPointerFactory implements NodePointerFactory {
             Object bean) {
         return ValueUtils.isCollection(bean) ? new CollectionPointer(parent, bean) : null;
     }
+
+    public int getApplicabilityHint(Class type) {
+        if (type.isArray() || Collection.class.isAssignableFrom(type)) {
+            return 1;
+        }
+        // a Container is unwrapped to check whether it holds a collection
+        return Container.class.isAssignableFrom(type) ? 0 : -1;
+    }
 }
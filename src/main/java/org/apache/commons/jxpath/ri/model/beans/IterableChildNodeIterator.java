@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.beans;
+
+import org.apache.commons.jxpath.ri.compiler.NodeTest;
+import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Forward child iterator of an {@link IterablePointer}. Unlike
+ * {@link CollectionChildNodeIterator} it does not collect the children of
+ * all elements up front: it moves on to the next element only when the
+ * children of the current one are exhausted, so asking for the first
+ * match reads no more elements than necessary.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class IterableChildNodeIterator implements NodeIterator {
+    private IterablePointer pointer;
+    private NodeTest test;
+    private int position;
+    private int elementIndex;
+    private NodeIterator elementIterator;
+    private int elementPosition;
+
+    /**
+     * Create a new IterableChildNodeIterator.
+     * @param pointer IterablePointer
+     * @param test child test
+     */
+    public IterableChildNodeIterator(IterablePointer pointer, NodeTest test) {
+        this.pointer = pointer;
+        this.test = test;
+        reset();
+    }
+
+    /**
+     * Go back to the position before the first child.
+     */
+    private void reset() {
+        position = 0;
+        elementIndex = -1;
+        elementIterator = null;
+        elementPosition = 0;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean setPosition(int position) {
+        if (position < this.position) {
+            reset();
+        }
+        while (this.position < position) {
+            if (!next()) {
+                return false;
+            }
+        }
+        return position >= 1;
+    }
+
+    /**
+     * Move to the next child, reading the next elements as needed.
+     * @return <code>false</code> if there are no more children
+     */
+    private boolean next() {
+        while (elementIterator == null
+                || !elementIterator.setPosition(elementPosition + 1)) {
+            if (!pointer.hasElement(elementIndex + 1)) {
+                return false;
+            }
+            elementIndex++;
+            NodePointer elementPointer = (NodePointer) pointer.clone();
+            elementPointer.setIndex(elementIndex);
+            elementIterator = elementPointer.getValuePointer().childIterator(
+                test, false, null);
+            elementPosition = 0;
+        }
+        elementPosition++;
+        position++;
+        return true;
+    }
+
+    public NodePointer getNodePointer() {
+        return position == 0 ? null : elementIterator.getNodePointer();
+    }
+}
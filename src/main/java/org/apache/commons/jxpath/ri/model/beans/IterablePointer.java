@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.beans;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.ri.compiler.NodeTest;
+import org.apache.commons.jxpath.ri.model.NodeIterator;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Transparent pointer to an <code>Iterable</code> that is not a
+ * <code>Collection</code>, such as a lazily loaded sequence, or to an
+ * <code>Iterator</code>. The elements are read with a single forward
+ * iterator shared by all the pointers to the same source, no further than
+ * the highest index requested. Evaluation steps that start over, such as
+ * <code>last()</code>, therefore do not read the source again.
+ * <p>
+ * An <code>Iterable</code> is streamed: only the element last read is kept,
+ * and counting the elements keeps none of them. Only when access moves back
+ * to an earlier element is the <code>Iterable</code> iterated again, this
+ * time keeping the elements read, so that it is never iterated more than
+ * twice.
+ * </p>
+ * <p>
+ * An <code>Iterator</code>, such as the iterator of a stream, can only be
+ * read once. Its elements are therefore kept as they are read. Pass a single-use
+ * source as an <code>Iterator</code> rather than as an <code>Iterable</code>
+ * whose <code>iterator()</code> method works only once.
+ * </p>
+ *
+ * @see IterablePointerFactory
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class IterablePointer extends CollectionPointer {
+    /** cursors of the sources pointed to, shared by all their pointers */
+    private static final Map CURSORS =
+        Collections.synchronizedMap(new WeakHashMap());
+
+    private final Object source;
+    private transient ElementCursor cursor;
+
+    private static final long serialVersionUID = -3209434356227513046L;
+
+    /**
+     * Create a new IterablePointer.
+     * @param iterable value
+     * @param locale Locale
+     */
+    public IterablePointer(Iterable iterable, Locale locale) {
+        super(iterable, locale);
+        this.source = iterable;
+    }
+
+    /**
+     * Create a new IterablePointer.
+     * @param parent parent NodePointer
+     * @param iterable value
+     */
+    public IterablePointer(NodePointer parent, Iterable iterable) {
+        super(parent, iterable);
+        this.source = iterable;
+    }
+
+    /**
+     * Create a new IterablePointer.
+     * @param iterator value
+     * @param locale Locale
+     */
+    public IterablePointer(Iterator iterator, Locale locale) {
+        super(iterator, locale);
+        this.source = iterator;
+    }
+
+    /**
+     * Create a new IterablePointer.
+     * @param parent parent NodePointer
+     * @param iterator value
+     */
+    public IterablePointer(NodePointer parent, Iterator iterator) {
+        super(parent, iterator);
+        this.source = iterator;
+    }
+
+    /**
+     * Get the element cursor, shared by all the pointers to the source.
+     * @return ElementCursor
+     */
+    private ElementCursor getCursor() {
+        if (cursor == null) {
+            synchronized (CURSORS) {
+                // The cursor references the source, so it is held weakly
+                Reference reference = (Reference) CURSORS.get(source);
+                cursor = reference == null ? null
+                        : (ElementCursor) reference.get();
+                if (cursor == null) {
+                    cursor = source instanceof Iterator
+                            ? new ElementCursor((Iterator) source)
+                            : new ElementCursor((Iterable) source);
+                    CURSORS.put(source, new WeakReference(cursor));
+                }
+            }
+        }
+        return cursor;
+    }
+
+    public int getLength() {
+        return getCursor().getLength();
+    }
+
+    /**
+     * Learn whether the iterable has an element at the specified index.
+     * Only reads the elements up to that index.
+     * @param index int
+     * @return boolean
+     */
+    public boolean hasElement(int index) {
+        return index >= 0 && getCursor().has(index);
+    }
+
+    public Object getImmediateNode() {
+        if (index == WHOLE_COLLECTION) {
+            return source;
+        }
+        return index >= 0 ? getCursor().get(index) : null;
+    }
+
+    public void setValue(Object value) {
+        if (index == WHOLE_COLLECTION) {
+            super.setValue(value);
+        }
+        else {
+            throw new JXPathException(
+                "Cannot modify an element of an Iterable: " + asPath());
+        }
+    }
+
+    public NodePointer createPath(JXPathContext context) {
+        if (index != WHOLE_COLLECTION && !hasElement(index)) {
+            throw new JXPathException(
+                "Cannot add an element to an Iterable: " + asPath());
+        }
+        return this;
+    }
+
+    public NodeIterator childIterator(NodeTest test, boolean reverse,
+            NodePointer startWith) {
+        if (index == WHOLE_COLLECTION && !reverse && startWith == null) {
+            return new IterableChildNodeIterator(this, test);
+        }
+        return super.childIterator(test, reverse, startWith);
+    }
+
+    /**
+     * Positional access to the elements of an Iterable or Iterator.
+     * All the pointers to the source, which may be used by several
+     * threads, share it.
+     */
+    private static final class ElementCursor {
+        private final Iterable iterable;
+        private Iterator iterator;
+        /** number of elements read from the current iterator */
+        private int nextIndex;
+        private Object current;
+        /** all the elements read, once they are kept */
+        private List elements;
+        private int length = -1;
+
+        /**
+         * Create a new ElementCursor that streams an Iterable.
+         * @param iterable to read
+         */
+        private ElementCursor(Iterable iterable) {
+            this.iterable = iterable;
+        }
+
+        /**
+         * Create a new ElementCursor that keeps the elements of an Iterator.
+         * @param iterator to read
+         */
+        private ElementCursor(Iterator iterator) {
+            this.iterable = null;
+            this.iterator = iterator;
+            this.elements = new ArrayList();
+        }
+
+        /**
+         * Learn whether there is an element at the specified index, moving
+         * the iterator forward as far as needed.
+         * @param index int
+         * @return boolean
+         */
+        synchronized boolean has(int index) {
+            if (length >= 0 && index >= length) {
+                return false;
+            }
+            if (index < nextIndex) {
+                if (elements == null && index < nextIndex - 1) {
+                    // Back to an earlier element: read again and keep them
+                    iterator = iterable.iterator();
+                    nextIndex = 0;
+                    current = null;
+                    elements = new ArrayList();
+                }
+                else {
+                    return true;
+                }
+            }
+            while (nextIndex <= index) {
+                if (!read()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Get an element.
+         * @param index int
+         * @return Object or <code>null</code> if there is no such element
+         */
+        synchronized Object get(int index) {
+            if (!has(index)) {
+                return null;
+            }
+            return elements == null ? current : elements.get(index);
+        }
+
+        /**
+         * Get the number of elements. Reads the rest of the elements, but
+         * keeps them only if they are already being kept.
+         * @return int
+         */
+        synchronized int getLength() {
+            while (length < 0) {
+                read();
+            }
+            return length;
+        }
+
+        /**
+         * Read the next element.
+         * @return <code>false</code> if there are no more elements
+         */
+        private boolean read() {
+            if (iterator == null) {
+                iterator = iterable.iterator();
+            }
+            if (!iterator.hasNext()) {
+                length = nextIndex;
+                return false;
+            }
+            current = iterator.next();
+            if (elements != null) {
+                elements.add(current);
+            }
+            nextIndex++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.beans;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Locale;
+
+import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ExtendedNodePointerFactory;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+
+/**
+ * Optionally pluggable <code>NodePointerFactory</code> that handles
+ * objects implementing <code>Iterable</code>, but not
+ * <code>Collection</code>, and <code>Iterator</code>s as collections of
+ * their elements rather than as JavaBeans. The elements are read lazily,
+ * see {@link IterablePointer}.
+ * Register it with
+ * {@link org.apache.commons.jxpath.ri.JXPathContextReferenceImpl#addNodePointerFactory(org.apache.commons.jxpath.ri.model.NodePointerFactory)}.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class IterablePointerFactory implements ExtendedNodePointerFactory {
+
+    /** factory order constant */
+    public static final int ITERABLE_POINTER_FACTORY_ORDER =
+        CollectionPointerFactory.COLLECTION_POINTER_FACTORY_ORDER + 1;
+
+    public int getOrder() {
+        return ITERABLE_POINTER_FACTORY_ORDER;
+    }
+
+    public NodePointer createNodePointer(QName name, Object bean, Locale locale) {
+        if (bean instanceof Iterator) {
+            return new IterablePointer((Iterator) bean, locale);
+        }
+        return isLazyIterable(bean) ? new IterablePointer((Iterable) bean, locale) : null;
+    }
+
+    public NodePointer createNodePointer(NodePointer parent, QName name,
+            Object bean) {
+        if (bean instanceof Iterator) {
+            return new IterablePointer(parent, (Iterator) bean);
+        }
+        return isLazyIterable(bean) ? new IterablePointer(parent, (Iterable) bean) : null;
+    }
+
+    public int getApplicabilityHint(Class type) {
+        return Iterator.class.isAssignableFrom(type)
+                || Iterable.class.isAssignableFrom(type)
+                && !Collection.class.isAssignableFrom(type) ? 1 : -1;
+    }
+
+    /**
+     * Learn whether the supplied object is handled by this factory.
+     * @param bean to check
+     * @return boolean
+     */
+    private static boolean isLazyIterable(Object bean) {
+        return bean instanceof Iterable && !(bean instanceof Collection);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.beans;
+
+import org.apache.commons.jxpath.JXPathBeanInfo;
+import org.apache.commons.jxpath.JXPathIntrospector;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.ri.model.NodePointerFactory;
+import org.apache.commons.jxpath.ri.model.dynamic.DynamicPointerFactory;
+import org.apache.commons.jxpath.util.ValueUtils;
+
+/**
+ * A BeanPointer to an element of a primitive numeric array. The element
+ * is read from the array on demand: its numeric value is returned without
+ * boxing, and it is only wrapped in a Number when requested as an object.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class PrimitiveArrayElementPointer extends BeanPointer {
+    private final Object array;
+    private final int arrayIndex;
+    private transient Object value;
+
+    private static final long serialVersionUID = 4476587385329049186L;
+
+    /**
+     * Create a new PrimitiveArrayElementPointer.
+     * @param parent pointer
+     * @param name is the name given to the element
+     * @param array primitive numeric array
+     * @param arrayIndex index of the element in the array
+     */
+    public PrimitiveArrayElementPointer(NodePointer parent, QName name,
+            Object array, int arrayIndex) {
+        super(parent, name, null, JXPathIntrospector.getBeanInfo(
+            getWrapperType(array)));
+        this.array = array;
+        this.arrayIndex = arrayIndex;
+    }
+
+    /**
+     * Allocates a pointer to the index'th element of the supplied object if
+     * it is a primitive numeric array and the element would otherwise be
+     * handled as a plain bean.
+     * @param parent pointer
+     * @param name is the name given to the element
+     * @param array candidate array
+     * @param arrayIndex index of the element
+     * @return NodePointer or <code>null</code> if this kind of pointer does
+     *         not apply
+     */
+    public static NodePointer newElementPointer(NodePointer parent,
+            QName name, Object array, int arrayIndex) {
+        if (!ValueUtils.isPrimitiveNumberArray(array) || arrayIndex < 0
+                || arrayIndex >= ValueUtils.getLength(array)
+                || !isBeanType(getWrapperType(array))) {
+            return null;
+        }
+        return new PrimitiveArrayElementPointer(parent, name, array,
+            arrayIndex);
+    }
+
+    /**
+     * Learn whether objects of the specified class are handled by the
+     * standard bean pointer factories, so that allocating a pointer for
+     * them directly does not bypass a custom factory.
+     * @param type to check
+     * @return boolean
+     */
+    private static boolean isBeanType(Class type) {
+        NodePointerFactory[] factories =
+            JXPathContextReferenceImpl.getNodePointerFactories(type);
+        for (int i = 0; i < factories.length; i++) {
+            if (factories[i] instanceof DynamicPointerFactory) {
+                JXPathBeanInfo bi = JXPathIntrospector.getBeanInfo(type);
+                if (bi.isDynamic()) {
+                    return false;
+                }
+            }
+            else if (!(factories[i] instanceof BeanPointerFactory)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the wrapper class of the component type of a primitive array.
+     * @param array primitive numeric array
+     * @return Class
+     */
+    private static Class getWrapperType(Object array) {
+        if (array instanceof int[]) {
+            return Integer.class;
+        }
+        if (array instanceof double[]) {
+            return Double.class;
+        }
+        if (array instanceof long[]) {
+            return Long.class;
+        }
+        if (array instanceof float[]) {
+            return Float.class;
+        }
+        if (array instanceof short[]) {
+            return Short.class;
+        }
+        return Byte.class;
+    }
+
+    public Object getBaseValue() {
+        if (value == null) {
+            value = ValueUtils.getValue(array, arrayIndex);
+        }
+        return value;
+    }
+
+    public double getDoubleValue() {
+        return ValueUtils.getDoubleValue(array, arrayIndex);
+    }
+
+    public boolean isLeaf() {
+        return true;
+    }
+}
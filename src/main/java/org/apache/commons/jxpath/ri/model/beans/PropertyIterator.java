@@ -36,6 +36,7 @@ public class PropertyIterator implements NodeIterator {
     private int position = 0;
     private PropertyPointer propertyNodePointer;
     private int startPropertyIndex;
+    private boolean startWithSpecified = false;
 
     private boolean includeStart = false;
 
@@ -61,6 +62,7 @@ public class PropertyIterator implements NodeIterator {
             this.startIndex = -1;
         }
         if (startWith != null) {
+            this.startWithSpecified = true;
             while (startWith != null
                     && startWith.getImmediateParentPointer() != pointer) {
                 startWith = startWith.getImmediateParentPointer();
@@ -267,6 +269,17 @@ public class PropertyIterator implements NodeIterator {
         targetReady = true;
         empty = true;
 
+        if (!startWithSpecified
+                && propertyNodePointer.isPropertyIndexResolvedOnDemand()) {
+            // Without a start pointer the iteration does not depend on the
+            // index of the property, so there is no need to look it up
+            if (propertyNodePointer.hasProperty(name)) {
+                propertyNodePointer.setPropertyName(name);
+                empty = false;
+            }
+            return;
+        }
+
         String[] names = propertyNodePointer.getPropertyNames();
         if (!reverse) {
             if (startPropertyIndex == PropertyPointer.UNSPECIFIED_PROPERTY) {
@@ -218,6 +218,35 @@ public abstract class PropertyPointer extends NodePointer {
         return prop.createPath(context);
     }
 
+    /**
+     * Learn whether the object owning this property has the named property.
+     * The default implementation searches {@link #getPropertyNames()};
+     * subclasses may answer without listing all property names.
+     * @param propertyName to look for
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    public boolean hasProperty(String propertyName) {
+        String[] names = getPropertyNames();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(propertyName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Learn whether a property selected with {@link #setPropertyName(String)}
+     * resolves its index on demand in {@link #getPropertyIndex()}. If so,
+     * a property can be selected by name without looking up its index first.
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    protected boolean isPropertyIndexResolvedOnDemand() {
+        return false;
+    }
+
     public int hashCode() {
         return getImmediateParentPointer().hashCode() + propertyIndex + index;
     }
@@ -128,9 +128,7 @@ public class DOMNodePointer extends NodePointer {
             if (wildcard && testPrefix == null) {
                 return true;
             }
-            if (wildcard
-                || testName.getName()
-                        .equals(DOMNodePointer.getLocalName(node))) {
+            if (wildcard || isLocalName(node, testName.getName())) {
                 String nodeNS = DOMNodePointer.getNamespaceURI(node);
                 return equalStrings(namespaceURI, nodeNS) || nodeNS == null
                         && equalStrings(testPrefix, getPrefix(node));
@@ -169,7 +167,7 @@ public class DOMNodePointer extends NodePointer {
      * @return true if == or .equals()
      */
     private static boolean equalStrings(String s1, String s2) {
-        if (s1 == s2) {
+        if (s1 == s2 || s1 != null && s1.equals(s2)) {
             return true;
         }
         s1 = s1 == null ? "" : s1.trim();
@@ -664,6 +662,25 @@ public class DOMNodePointer extends NodePointer {
         return index < 0 ? name : name.substring(index + 1);
     }
 
+    /**
+     * Learn whether the local name of the specified node is
+     * <code>localName</code>, without extracting the local name from
+     * a qualified node name.
+     * @param node node to check
+     * @param localName name to compare
+     * @return boolean
+     */
+    private static boolean isLocalName(Node node, String localName) {
+        String name = node.getLocalName();
+        if (name != null) {
+            return localName.equals(name);
+        }
+        name = node.getNodeName();
+        int start = name.lastIndexOf(':') + 1;
+        return name.length() - start == localName.length()
+                && name.startsWith(localName, start);
+    }
+
     /**
      * Get the ns uri of the specified node.
      * @param node Node to check
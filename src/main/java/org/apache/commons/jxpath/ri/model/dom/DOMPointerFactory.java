@@ -19,8 +19,8 @@ package org.apache.commons.jxpath.ri.model.dom;
 import java.util.Locale;
 
 import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ExtendedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
-import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 import org.w3c.dom.Node;
 
 /**
@@ -29,7 +29,7 @@ import org.w3c.dom.Node;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class DOMPointerFactory implements NodePointerFactory {
+public class DOMPointerFactory implements ExtendedNodePointerFactory {
 
     /** factory order */
     public static final int DOM_POINTER_FACTORY_ORDER = 100;
@@ -51,4 +51,8 @@ public class DOMPointerFactory implements NodePointerFactory {
         Object bean) {
         return bean instanceof Node ? new DOMNodePointer(parent, (Node) bean) : null;
     }
+
+    public int getApplicabilityHint(Class type) {
+        return Node.class.isAssignableFrom(type) ? 1 : -1;
+    }
 }
@@ -22,8 +22,8 @@ import org.apache.commons.jxpath.DynamicPropertyHandler;
 import org.apache.commons.jxpath.JXPathBeanInfo;
 import org.apache.commons.jxpath.JXPathIntrospector;
 import org.apache.commons.jxpath.ri.QName;
+import org.apache.commons.jxpath.ri.model.ExtendedNodePointerFactory;
 import org.apache.commons.jxpath.ri.model.NodePointer;
-import org.apache.commons.jxpath.ri.model.NodePointerFactory;
 import org.apache.commons.jxpath.ri.model.beans.NullPointer;
 import org.apache.commons.jxpath.util.ValueUtils;
 
@@ -33,7 +33,7 @@ import org.apache.commons.jxpath.util.ValueUtils;
  * @author Dmitri Plotnikov
  * @version $Revision$ $Date$
  */
-public class DynamicPointerFactory implements NodePointerFactory {
+public class DynamicPointerFactory implements ExtendedNodePointerFactory {
 
     /**
      * Factory order constant.
@@ -75,4 +75,9 @@ public class DynamicPointerFactory implements NodePointerFactory {
         }
         return null;
     }
+
+    public int getApplicabilityHint(Class type) {
+        // Bean info registrations may still change after the first lookup
+        return 0;
+    }
 }
@@ -21,11 +21,13 @@ import java.util.Map;
 
 import org.apache.commons.jxpath.AbstractFactory;
 import org.apache.commons.jxpath.DynamicPropertyHandler;
+import org.apache.commons.jxpath.ExtendedDynamicPropertyHandler;
 import org.apache.commons.jxpath.JXPathAbstractFactoryException;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathInvalidAccessException;
 import org.apache.commons.jxpath.ri.model.NodePointer;
 import org.apache.commons.jxpath.ri.model.beans.PropertyPointer;
+import org.apache.commons.jxpath.util.CollectionCursor;
 import org.apache.commons.jxpath.util.ValueUtils;
 
 /**
@@ -42,6 +44,7 @@ public class DynamicPropertyPointer extends PropertyPointer {
     private String name;
     private String[] names;
     private String requiredPropertyName;
+    private transient CollectionCursor cursor;
 
     /**
      * Create a new DynamicPropertyPointer.
@@ -94,6 +97,26 @@ public class DynamicPropertyPointer extends PropertyPointer {
         return names;
     }
 
+    /**
+     * Learn whether the object has the named property. Asks an
+     * {@link ExtendedDynamicPropertyHandler} directly rather than listing
+     * and sorting all property names.
+     * @param propertyName to look for
+     * @return boolean
+     */
+    public boolean hasProperty(String propertyName) {
+        if (names == null && handler instanceof ExtendedDynamicPropertyHandler) {
+            return propertyName.equals(requiredPropertyName)
+                    || ((ExtendedDynamicPropertyHandler) handler).hasProperty(
+                            getBean(), propertyName);
+        }
+        return super.hasProperty(propertyName);
+    }
+
+    protected boolean isPropertyIndexResolvedOnDemand() {
+        return true;
+    }
+
     /**
      * Returns the name of the currently selected property or "*"
      * if none has been selected.
@@ -178,9 +201,12 @@ public class DynamicPropertyPointer extends PropertyPointer {
                     getPropertyName()));
         }
         else {
-            value = ValueUtils.getValue(handler.getProperty(
+            Object collection = ValueUtils.getValue(handler.getProperty(
                     getBean(),
-                    getPropertyName()), index);
+                    getPropertyName()));
+            cursor = CollectionCursor.getCursor(collection, cursor);
+            value = cursor == null ? ValueUtils.getValue(collection, index)
+                    : cursor.get(index);
         }
         return value;
     }
@@ -283,6 +309,19 @@ public class DynamicPropertyPointer extends PropertyPointer {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The clone gets its own collection cursor, as cursors are not thread
+     * safe and clones may be handed to other threads.
+     * </p>
+     */
+    public Object clone() {
+        DynamicPropertyPointer pointer = (DynamicPropertyPointer) super.clone();
+        pointer.cursor = null;
+        return pointer;
+    }
+
     public String asPath() {
         StringBuffer buffer = new StringBuffer();
         buffer.append(getImmediateParentPointer().asPath());
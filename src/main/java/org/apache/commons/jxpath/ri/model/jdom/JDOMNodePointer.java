@@ -432,7 +432,7 @@ public class JDOMNodePointer extends NodePointer {
      * @return true if equal
      */
     private static boolean equalStrings(String s1, String s2) {
-        if (s1 == s2) {
+        if (s1 == s2 || s1 != null && s1.equals(s2)) {
             return true;
         }
         s1 = s1 == null ? "" : s1.trim();
@@ -26,8 +26,10 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.WeakHashMap;
 
 import org.apache.commons.beanutils.ConvertUtils;
 import org.apache.commons.beanutils.Converter;
@@ -44,6 +46,39 @@ import org.apache.commons.jxpath.Pointer;
  */
 public class BasicTypeConverter implements TypeConverter {
 
+    /** Conversion step: the object is returned as it is */
+    private static final int AS_IS = 0;
+    /** Conversion step: the object is an array */
+    private static final int FROM_ARRAY = 1;
+    /** Conversion step: the object is a Collection */
+    private static final int FROM_COLLECTION = 2;
+    /** Conversion step: the object is a NodeSet */
+    private static final int FROM_NODE_SET = 3;
+    /** Conversion step: the object is a Pointer */
+    private static final int FROM_POINTER = 4;
+    /** Conversion step: the object is converted with toString() */
+    private static final int TO_STRING = 5;
+    /** Conversion step: a Boolean is converted to a Number */
+    private static final int BOOLEAN_TO_NUMBER = 6;
+    /** Conversion step: a Boolean is converted to an AtomicBoolean */
+    private static final int BOOLEAN_TO_ATOMIC_BOOLEAN = 7;
+    /** Conversion step: a Number is converted to a Boolean */
+    private static final int NUMBER_TO_BOOLEAN = 8;
+    /** Conversion step: a Number is converted to another Number */
+    private static final int NUMBER_TO_NUMBER = 9;
+    /** Conversion step: a String is parsed */
+    private static final int FROM_STRING = 10;
+    /** Conversion step: a BeanUtils converter is looked up */
+    private static final int LOOKUP = 11;
+
+    /**
+     * Conversion plans by source class, each a map from destination class
+     * to {@link ConversionPlan}. Both classes are weakly held and a plan
+     * refers to neither, so the cache does not keep classes or their class
+     * loaders from being unloaded.
+     */
+    private static final Map PLANS = new WeakHashMap();
+
     /**
      * Returns true if it can convert the supplied
      * object to the specified class.
@@ -55,95 +90,71 @@ public class BasicTypeConverter implements TypeConverter {
         if (object == null) {
             return true;
         }
+        ConversionPlan plan = getConversionPlan(object.getClass(), toType);
         final Class useType = TypeUtils.wrapPrimitive(toType);
-        Class fromType = object.getClass();
-
-        if (useType.isAssignableFrom(fromType)) {
-            return true;
-        }
-
-        if (useType == String.class) {
-            return true;
-        }
-
-        if (object instanceof Boolean && (Number.class.isAssignableFrom(useType)
-                || "java.util.concurrent.atomic.AtomicBoolean"
-                        .equals(useType.getName()))) {
-            return true;
-        }
-        if (object instanceof Number
-                && (Number.class.isAssignableFrom(useType) || useType == Boolean.class)) {
-            return true;
-        }
-        if (object instanceof String
-                && (useType == Boolean.class
-                        || useType == Character.class
-                        || useType == Byte.class
-                        || useType == Short.class
-                        || useType == Integer.class
-                        || useType == Long.class
-                        || useType == Float.class
-                        || useType == Double.class)) {
+        switch (plan.canConvertStep) {
+            case AS_IS :
                 return true;
-        }
-        if (fromType.isArray()) {
-            // Collection -> array
-            if (useType.isArray()) {
-                Class cType = useType.getComponentType();
-                int length = Array.getLength(object);
-                for (int i = 0; i < length; i++) {
-                    Object value = Array.get(object, i);
-                    if (!canConvert(value, cType)) {
-                        return false;
+            case FROM_ARRAY :
+                // Collection -> array
+                if (useType.isArray()) {
+                    Class cType = useType.getComponentType();
+                    int length = Array.getLength(object);
+                    if (length > 0 && plan.uniformElements) {
+                        // All elements are of the same class, so one will do
+                        return canConvert(Array.get(object, 0), cType);
                     }
-                }
-                return true;
-            }
-            if (Collection.class.isAssignableFrom(useType)) {
-                return canCreateCollection(useType);
-            }
-            if (Array.getLength(object) > 0) {
-                Object value = Array.get(object, 0);
-                return canConvert(value, useType);
-            }
-            return canConvert("", useType);
-        }
-        if (object instanceof Collection) {
-            // Collection -> array
-            if (useType.isArray()) {
-                Class cType = useType.getComponentType();
-                Iterator it = ((Collection) object).iterator();
-                while (it.hasNext()) {
-                    Object value = it.next();
-                    if (!canConvert(value, cType)) {
-                        return false;
+                    for (int i = 0; i < length; i++) {
+                        Object value = Array.get(object, i);
+                        if (!canConvert(value, cType)) {
+                            return false;
+                        }
                     }
+                    return true;
                 }
-                return true;
-            }
-            if (Collection.class.isAssignableFrom(useType)) {
-                return canCreateCollection(useType);
-            }
-            if (((Collection) object).size() > 0) {
-                Object value;
-                if (object instanceof List) {
-                    value = ((List) object).get(0);
+                if (Collection.class.isAssignableFrom(useType)) {
+                    return canCreateCollection(useType);
+                }
+                if (Array.getLength(object) > 0) {
+                    Object value = Array.get(object, 0);
+                    return canConvert(value, useType);
                 }
-                else {
+                return canConvert("", useType);
+            case FROM_COLLECTION :
+                // Collection -> array
+                if (useType.isArray()) {
+                    Class cType = useType.getComponentType();
                     Iterator it = ((Collection) object).iterator();
-                    value = it.next();
+                    while (it.hasNext()) {
+                        Object value = it.next();
+                        if (!canConvert(value, cType)) {
+                            return false;
+                        }
+                    }
+                    return true;
                 }
-                return canConvert(value, useType);
-            }
-            return canConvert("", useType);
-        }
-        if (object instanceof NodeSet) {
-            return canConvert(((NodeSet) object).getValues(), useType);
-        }
-        if (object instanceof Pointer) {
-            return canConvert(((Pointer) object).getValue(), useType);
+                if (Collection.class.isAssignableFrom(useType)) {
+                    return canCreateCollection(useType);
+                }
+                if (((Collection) object).size() > 0) {
+                    Object value;
+                    if (object instanceof List) {
+                        value = ((List) object).get(0);
+                    }
+                    else {
+                        Iterator it = ((Collection) object).iterator();
+                        value = it.next();
+                    }
+                    return canConvert(value, useType);
+                }
+                return canConvert("", useType);
+            case FROM_NODE_SET :
+                return canConvert(((NodeSet) object).getValues(), useType);
+            case FROM_POINTER :
+                return canConvert(((Pointer) object).getValue(), useType);
+            default :
+                return ConvertUtils.lookup(useType) != null;
         }
-        return ConvertUtils.lookup(useType) != null;
     }
 
     /**
@@ -159,91 +170,73 @@ public class BasicTypeConverter implements TypeConverter {
             return toType.isPrimitive() ? convertNullToPrimitive(toType) : null;
         }
 
-        if (toType == Object.class) {
-            if (object instanceof NodeSet) {
-                return convert(((NodeSet) object).getValues(), toType);
-            }
-            if (object instanceof Pointer) {
-                return convert(((Pointer) object).getValue(), toType);
-            }
-            return object;
-        }
+        ConversionPlan plan = getConversionPlan(object.getClass(), toType);
         final Class useType = TypeUtils.wrapPrimitive(toType);
-        Class fromType = object.getClass();
-
-        if (useType.isAssignableFrom(fromType)) {
-            return object;
-        }
-
-        if (fromType.isArray()) {
-            int length = Array.getLength(object);
-            if (useType.isArray()) {
-                Class cType = useType.getComponentType();
+        switch (plan.convertStep) {
+            case AS_IS :
+                return object;
+            case FROM_ARRAY :
+                int length = Array.getLength(object);
+                if (useType.isArray()) {
+                    Class cType = useType.getComponentType();
 
-                Object array = Array.newInstance(cType, length);
-                for (int i = 0; i < length; i++) {
-                    Object value = Array.get(object, i);
-                    Array.set(array, i, convert(value, cType));
-                }
-                return array;
-            }
-            if (Collection.class.isAssignableFrom(useType)) {
-                Collection collection = allocateCollection(useType);
-                for (int i = 0; i < length; i++) {
-                    collection.add(Array.get(object, i));
+                    Object array = Array.newInstance(cType, length);
+                    for (int i = 0; i < length; i++) {
+                        Object value = Array.get(object, i);
+                        Array.set(array, i, convert(value, cType));
+                    }
+                    return array;
                 }
-                return unmodifiableCollection(collection);
-            }
-            if (length > 0) {
-                Object value = Array.get(object, 0);
-                return convert(value, useType);
-            }
-            return convert("", useType);
-        }
-        if (object instanceof Collection) {
-            int length = ((Collection) object).size();
-            if (useType.isArray()) {
-                Class cType = useType.getComponentType();
-                Object array = Array.newInstance(cType, length);
-                Iterator it = ((Collection) object).iterator();
-                for (int i = 0; i < length; i++) {
-                    Object value = it.next();
-                    Array.set(array, i, convert(value, cType));
+                if (Collection.class.isAssignableFrom(useType)) {
+                    Collection collection = allocateCollection(useType);
+                    for (int i = 0; i < length; i++) {
+                        collection.add(Array.get(object, i));
+                    }
+                    return unmodifiableCollection(collection);
                 }
-                return array;
-            }
-            if (Collection.class.isAssignableFrom(useType)) {
-                Collection collection = allocateCollection(useType);
-                collection.addAll((Collection) object);
-                return unmodifiableCollection(collection);
-            }
-            if (length > 0) {
-                Object value;
-                if (object instanceof List) {
-                    value = ((List) object).get(0);
+                if (length > 0) {
+                    Object value = Array.get(object, 0);
+                    return convert(value, useType);
                 }
-                else {
+                return convert("", useType);
+            case FROM_COLLECTION :
+                int size = ((Collection) object).size();
+                if (useType.isArray()) {
+                    Class cType = useType.getComponentType();
+                    Object array = Array.newInstance(cType, size);
                     Iterator it = ((Collection) object).iterator();
-                    value = it.next();
+                    for (int i = 0; i < size; i++) {
+                        Object value = it.next();
+                        Array.set(array, i, convert(value, cType));
+                    }
+                    return array;
                 }
-                return convert(value, useType);
-            }
-            return convert("", useType);
-        }
-        if (object instanceof NodeSet) {
-            return convert(((NodeSet) object).getValues(), useType);
-        }
-        if (object instanceof Pointer) {
-            return convert(((Pointer) object).getValue(), useType);
-        }
-        if (useType == String.class) {
-            return object.toString();
-        }
-        if (object instanceof Boolean) {
-            if (Number.class.isAssignableFrom(useType)) {
+                if (Collection.class.isAssignableFrom(useType)) {
+                    Collection collection = allocateCollection(useType);
+                    collection.addAll((Collection) object);
+                    return unmodifiableCollection(collection);
+                }
+                if (size > 0) {
+                    Object value;
+                    if (object instanceof List) {
+                        value = ((List) object).get(0);
+                    }
+                    else {
+                        Iterator it = ((Collection) object).iterator();
+                        value = it.next();
+                    }
+                    return convert(value, useType);
+                }
+                return convert("", useType);
+            case FROM_NODE_SET :
+                return convert(((NodeSet) object).getValues(), useType);
+            case FROM_POINTER :
+                return convert(((Pointer) object).getValue(), useType);
+            case TO_STRING :
+                return object.toString();
+            case BOOLEAN_TO_NUMBER :
                 return allocateNumber(useType, ((Boolean) object).booleanValue() ? 1 : 0);
-            }
-            if ("java.util.concurrent.atomic.AtomicBoolean".equals(useType.getName())) {
+            case BOOLEAN_TO_ATOMIC_BOOLEAN :
                 try {
                     return useType.getConstructor(new Class[] { boolean.class })
                             .newInstance(object);
@@ -251,31 +244,184 @@ public class BasicTypeConverter implements TypeConverter {
                 catch (Exception e) {
                     throw new JXPathTypeConversionException(useType.getName(), e);
                 }
+            case NUMBER_TO_BOOLEAN :
+                return ((Number) object).doubleValue() == 0.0 ? Boolean.FALSE : Boolean.TRUE;
+            case NUMBER_TO_NUMBER :
+                return allocateNumber(useType, ((Number) object).doubleValue());
+            case FROM_STRING :
+                Object value = convertStringToPrimitive(object, useType);
+                if (value != null) {
+                    return value;
+                }
+                break;
+            default :
+                break;
+        }
+
+        Converter converter = ConvertUtils.lookup(useType);
+        if (converter != null) {
+            return converter.convert(useType, object);
+        }
+
+        throw new JXPathTypeConversionException("Cannot convert "
+                + object.getClass() + " to " + useType);
+    }
+
+    /**
+     * Get the conversion plan from one class to another, working it out on
+     * first use.
+     * @param fromType class of the object to convert
+     * @param toType destination class
+     * @return ConversionPlan
+     */
+    private static ConversionPlan getConversionPlan(Class fromType,
+            Class toType) {
+        synchronized (PLANS) {
+            Map plans = (Map) PLANS.get(fromType);
+            if (plans == null) {
+                plans = new WeakHashMap();
+                PLANS.put(fromType, plans);
             }
+            ConversionPlan plan = (ConversionPlan) plans.get(toType);
+            if (plan == null) {
+                plan = new ConversionPlan(fromType, toType);
+                plans.put(toType, plan);
+            }
+            return plan;
+        }
+    }
+
+    /**
+     * The parts of a conversion that only depend on the source and
+     * destination classes. The steps that call overridable methods or
+     * depend on registered BeanUtils converters are still carried out on
+     * every conversion.
+     */
+    private static final class ConversionPlan {
+        private final int canConvertStep;
+        private final int convertStep;
+        private final boolean uniformElements;
+
+        /**
+         * Create a new ConversionPlan.
+         * @param fromType class of the object to convert
+         * @param toType destination class
+         */
+        private ConversionPlan(Class fromType, Class toType) {
+            Class useType = TypeUtils.wrapPrimitive(toType);
+            canConvertStep = getCanConvertStep(fromType, useType);
+            convertStep = toType == Object.class ? getConvertToObjectStep(fromType)
+                    : getConvertStep(fromType, useType);
+            Class componentType = fromType.getComponentType();
+            uniformElements = componentType != null
+                    && componentType.isPrimitive();
         }
-        if (object instanceof Number) {
-            double value = ((Number) object).doubleValue();
-            if (useType == Boolean.class) {
-                return value == 0.0 ? Boolean.FALSE : Boolean.TRUE;
+
+        /**
+         * Work out the first step of canConvert().
+         * @param fromType class of the object to convert
+         * @param useType destination class, primitives wrapped
+         * @return step
+         */
+        private static int getCanConvertStep(Class fromType, Class useType) {
+            if (useType.isAssignableFrom(fromType) || useType == String.class) {
+                return AS_IS;
             }
-            if (Number.class.isAssignableFrom(useType)) {
-                return allocateNumber(useType, value);
+            if (fromType == Boolean.class && (Number.class.isAssignableFrom(useType)
+                    || "java.util.concurrent.atomic.AtomicBoolean"
+                            .equals(useType.getName()))) {
+                return AS_IS;
             }
+            if (Number.class.isAssignableFrom(fromType)
+                    && (Number.class.isAssignableFrom(useType) || useType == Boolean.class)) {
+                return AS_IS;
+            }
+            if (fromType == String.class
+                    && (useType == Boolean.class
+                            || useType == Character.class
+                            || useType == Byte.class
+                            || useType == Short.class
+                            || useType == Integer.class
+                            || useType == Long.class
+                            || useType == Float.class
+                            || useType == Double.class)) {
+                return AS_IS;
+            }
+            return getContainerStep(fromType, LOOKUP);
         }
-        if (object instanceof String) {
-            Object value = convertStringToPrimitive(object, useType);
-            if (value != null) {
-                return value;
+
+        /**
+         * Work out the first step of convert() to Object.
+         * @param fromType class of the object to convert
+         * @return step
+         */
+        private static int getConvertToObjectStep(Class fromType) {
+            if (NodeSet.class.isAssignableFrom(fromType)) {
+                return FROM_NODE_SET;
+            }
+            if (Pointer.class.isAssignableFrom(fromType)) {
+                return FROM_POINTER;
             }
+            return AS_IS;
         }
 
-        Converter converter = ConvertUtils.lookup(useType);
-        if (converter != null) {
-            return converter.convert(useType, object);
+        /**
+         * Work out the first step of convert().
+         * @param fromType class of the object to convert
+         * @param useType destination class, primitives wrapped
+         * @return step
+         */
+        private static int getConvertStep(Class fromType, Class useType) {
+            if (useType.isAssignableFrom(fromType)) {
+                return AS_IS;
+            }
+            int step = getContainerStep(fromType, -1);
+            if (step != -1) {
+                return step;
+            }
+            if (useType == String.class) {
+                return TO_STRING;
+            }
+            if (fromType == Boolean.class) {
+                if (Number.class.isAssignableFrom(useType)) {
+                    return BOOLEAN_TO_NUMBER;
+                }
+                if ("java.util.concurrent.atomic.AtomicBoolean".equals(useType.getName())) {
+                    return BOOLEAN_TO_ATOMIC_BOOLEAN;
+                }
+            }
+            if (Number.class.isAssignableFrom(fromType)) {
+                if (useType == Boolean.class) {
+                    return NUMBER_TO_BOOLEAN;
+                }
+                if (Number.class.isAssignableFrom(useType)) {
+                    return NUMBER_TO_NUMBER;
+                }
+            }
+            return fromType == String.class ? FROM_STRING : LOOKUP;
         }
 
-        throw new JXPathTypeConversionException("Cannot convert "
-                + object.getClass() + " to " + useType);
+        /**
+         * Work out whether the object to convert is a container of values.
+         * @param fromType class of the object to convert
+         * @param otherwise step to return if it is not
+         * @return step
+         */
+        private static int getContainerStep(Class fromType, int otherwise) {
+            if (fromType.isArray()) {
+                return FROM_ARRAY;
+            }
+            if (Collection.class.isAssignableFrom(fromType)) {
+                return FROM_COLLECTION;
+            }
+            if (NodeSet.class.isAssignableFrom(fromType)) {
+                return FROM_NODE_SET;
+            }
+            if (Pointer.class.isAssignableFrom(fromType)) {
+                return FROM_POINTER;
+            }
+            return otherwise;
+        }
     }
 
     /**
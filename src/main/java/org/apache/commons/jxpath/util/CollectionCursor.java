@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Positional access to the elements of a Collection that is not a List.
+ * Such a collection can only be traversed with an iterator, so looking
+ * up the i-th element on its own costs i steps. A cursor keeps the
+ * iterator it used last and moves it forward when the elements are read
+ * in ascending order, which makes a sequential scan linear. When an
+ * element before the current position is requested, the cursor copies
+ * the collection to an array and reads from that copy from then on.
+ * <p>
+ * A cursor is not thread safe. It assumes the collection is not modified
+ * while it is used, except for modifications that change its size or
+ * cause its iterator to fail, which make it start over.
+ * </p>
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public final class CollectionCursor {
+    private final Collection collection;
+    private Iterator iterator;
+    private int nextIndex;
+    private Object current;
+    private Object[] elements;
+
+    /**
+     * Create a new CollectionCursor.
+     * @param collection to traverse
+     */
+    public CollectionCursor(Collection collection) {
+        this.collection = collection;
+    }
+
+    /**
+     * Returns a cursor for the supplied value if it is a Collection that
+     * does not provide positional access. The supplied cursor is returned
+     * if it already traverses that collection.
+     * @param value to traverse
+     * @param cursor previously used cursor, may be <code>null</code>
+     * @return CollectionCursor or <code>null</code> if the value is not a
+     *         Collection or is a List
+     */
+    public static CollectionCursor getCursor(Object value,
+            CollectionCursor cursor) {
+        if (!(value instanceof Collection) || value instanceof List) {
+            return null;
+        }
+        if (cursor != null && cursor.collection == value) {
+            return cursor;
+        }
+        return new CollectionCursor((Collection) value);
+    }
+
+    /**
+     * Get the collection traversed by this cursor.
+     * @return Collection
+     */
+    public Collection getCollection() {
+        return collection;
+    }
+
+    /**
+     * Returns the index'th element of the collection.
+     * @param index int
+     * @return the element or <code>null</code> if the index is out of range
+     */
+    public Object get(int index) {
+        int size = collection.size();
+        if (index < 0 || index >= size) {
+            return null;
+        }
+        if (elements == null) {
+            if (index == nextIndex - 1) {
+                return current;
+            }
+            if (index >= nextIndex) {
+                try {
+                    if (iterator == null) {
+                        iterator = collection.iterator();
+                    }
+                    while (nextIndex <= index) {
+                        current = iterator.next();
+                        nextIndex++;
+                    }
+                    return current;
+                }
+                catch (ConcurrentModificationException ex) {
+                    // fall through to the snapshot
+                }
+                catch (NoSuchElementException ex) {
+                    // fall through to the snapshot
+                }
+            }
+            iterator = null;
+            current = null;
+        }
+        if (elements == null || elements.length != size) {
+            elements = collection.toArray();
+        }
+        return index < elements.length ? elements[index] : null;
+    }
+}
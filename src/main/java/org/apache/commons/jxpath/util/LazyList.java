@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * A read-only List of the elements of an Iterator, read from it as they are
+ * needed. Getting the i-th element reads the iterator up to that element
+ * and no further; the elements read are kept, so they can be got again in
+ * any order at no extra cost. Asking for the size reads the whole
+ * iterator, which is then released.
+ * <p>
+ * A LazyList is not thread safe. Once its size has been asked for, it is
+ * no longer modified, and its elements can be read by several threads.
+ * </p>
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public final class LazyList extends AbstractList implements RandomAccess {
+    private final ArrayList elements = new ArrayList();
+    private Iterator source;
+
+    /**
+     * Create a new LazyList.
+     * @param source iterator to read the elements from
+     */
+    public LazyList(Iterator source) {
+        this.source = source;
+    }
+
+    /**
+     * Read the source until the element at the specified index has been
+     * read, or the source has run out of elements.
+     * @param index of the element
+     * @return whether there is such an element
+     */
+    private boolean fill(int index) {
+        while (source != null && elements.size() <= index) {
+            if (source.hasNext()) {
+                elements.add(source.next());
+            }
+            else {
+                source = null;
+            }
+        }
+        return index < elements.size();
+    }
+
+    public Object get(int index) {
+        if (index < 0 || !fill(index)) {
+            throw new IndexOutOfBoundsException("Index: " + index);
+        }
+        return elements.get(index);
+    }
+
+    public int size() {
+        fill(Integer.MAX_VALUE);
+        return elements.size();
+    }
+
+    public boolean isEmpty() {
+        return !fill(0);
+    }
+
+    public Iterator iterator() {
+        return new Iterator() {
+            private int next;
+
+            public boolean hasNext() {
+                return fill(next);
+            }
+
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return elements.get(next++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -20,9 +20,12 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
+import java.util.Collection;
 
 import org.apache.commons.jxpath.ExpressionContext;
 import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.NodeSet;
+import org.apache.commons.jxpath.Pointer;
 
 /**
  * Method lookup utilities, which find static and non-static methods as well
@@ -37,6 +40,34 @@ public class MethodLookupUtils {
     private static final int APPROXIMATE_MATCH = 1;
     private static final int EXACT_MATCH = 2;
 
+    private static final Class[] EMPTY_CLASSES = new Class[0];
+
+    /**
+     * Get the classes of the specified parameters, if the constructor or
+     * method found for them only depends on their classes. It is not the
+     * case when a parameter is <code>null</code>, a collection, an array, a
+     * NodeSet or a Pointer, whose contents are matched too.
+     * @param parameters method parameters
+     * @return Class[] or <code>null</code>
+     * @since JXPath 1.4
+     */
+    public static Class[] getParameterClasses(Object[] parameters) {
+        if (parameters == null || parameters.length == 0) {
+            return EMPTY_CLASSES;
+        }
+        Class[] types = new Class[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            Object param = parameters[i];
+            if (param == null || param instanceof Collection
+                    || param instanceof NodeSet || param instanceof Pointer
+                    || param.getClass().isArray()) {
+                return null;
+            }
+            types[i] = param.getClass();
+        }
+        return types;
+    }
+
     /**
      * Look up a constructor.
      * @param targetClass the class constructed
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.beans.IndexedPropertyDescriptor;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import org.apache.commons.jxpath.JXPathException;
+
+/**
+ * Pre-resolved accessors for a JavaBean property. The read and write
+ * methods of the property are looked up once and bound to
+ * <code>MethodHandle</code>s, so that reading and writing the property
+ * does not repeat the accessible method search nor go through
+ * <code>Method.invoke</code>.
+ * <p>
+ * The methods of this class behave like the corresponding
+ * <code>PropertyDescriptor</code> based methods of {@link ValueUtils}.
+ * </p>
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public class PropertyAccessor {
+    private static final MethodType GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, Object.class);
+    private static final MethodType INDEXED_GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class, int.class);
+    private static final MethodType INDEXED_SETTER_TYPE =
+        MethodType.methodType(void.class, Object.class, int.class, Object.class);
+
+    private final PropertyDescriptor propertyDescriptor;
+    private final MethodHandle getter;
+    private final MethodHandle setter;
+    private final MethodHandle indexedGetter;
+    private final MethodHandle indexedSetter;
+    private final Class indexedPropertyType;
+
+    /**
+     * Create a new PropertyAccessor.
+     * @param propertyDescriptor describes the property
+     */
+    public PropertyAccessor(PropertyDescriptor propertyDescriptor) {
+        this.propertyDescriptor = propertyDescriptor;
+        getter = unreflect(propertyDescriptor.getReadMethod(), GETTER_TYPE);
+        setter = unreflect(propertyDescriptor.getWriteMethod(), SETTER_TYPE);
+        if (propertyDescriptor instanceof IndexedPropertyDescriptor) {
+            IndexedPropertyDescriptor ipd =
+                (IndexedPropertyDescriptor) propertyDescriptor;
+            indexedGetter =
+                unreflect(ipd.getIndexedReadMethod(), INDEXED_GETTER_TYPE);
+            indexedSetter =
+                unreflect(ipd.getIndexedWriteMethod(), INDEXED_SETTER_TYPE);
+            indexedPropertyType = ipd.getIndexedPropertyType();
+        }
+        else {
+            indexedGetter = null;
+            indexedSetter = null;
+            indexedPropertyType = null;
+        }
+    }
+
+    /**
+     * Bind the accessible version of a method to a MethodHandle of the
+     * specified type.
+     * @param method to bind, may be <code>null</code>
+     * @param type generic type of the resulting handle
+     * @return MethodHandle or <code>null</code> if the method does not exist
+     *         or cannot be accessed
+     */
+    private static MethodHandle unreflect(Method method, MethodType type) {
+        Method accessible = ValueUtils.getAccessibleMethod(method);
+        if (accessible == null) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup().unreflect(accessible)
+                    .asType(type);
+        }
+        catch (IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Get the property descriptor.
+     * @return PropertyDescriptor
+     */
+    public PropertyDescriptor getPropertyDescriptor() {
+        return propertyDescriptor;
+    }
+
+    /**
+     * Returns the value of the property of the specified bean.
+     * @param bean to read
+     * @return Object value
+     */
+    public Object getValue(Object bean) {
+        try {
+            if (getter == null) {
+                throw new JXPathException("No read method");
+            }
+            return (Object) getter.invokeExact(bean);
+        }
+        catch (Throwable ex) {
+            throw new JXPathException(
+                "Cannot access property: "
+                    + (bean == null ? "null" : bean.getClass().getName())
+                    + "."
+                    + propertyDescriptor.getName(),
+                wrap(ex));
+        }
+    }
+
+    /**
+     * Modifies the value of the property of the specified bean.
+     * @param bean to modify
+     * @param value to set
+     */
+    public void setValue(Object bean, Object value) {
+        try {
+            if (setter == null) {
+                throw new JXPathException("No write method");
+            }
+            value = convert(value, propertyDescriptor.getPropertyType());
+            setter.invokeExact(bean, value);
+        }
+        catch (Throwable ex) {
+            throw new JXPathException(
+                "Cannot modify property: "
+                    + (bean == null ? "null" : bean.getClass().getName())
+                    + "."
+                    + propertyDescriptor.getName(),
+                wrap(ex));
+        }
+    }
+
+    /**
+     * Returns the index'th element of the property of the specified bean.
+     * @param bean to read
+     * @param index int
+     * @return Object
+     */
+    public Object getValue(Object bean, int index) {
+        if (indexedGetter != null) {
+            try {
+                return (Object) indexedGetter.invokeExact(bean, index);
+            }
+            catch (IndexOutOfBoundsException ex) {
+                return null;
+            }
+            catch (Throwable ex) {
+                throw new JXPathException(
+                    "Cannot access property: " + propertyDescriptor.getName(),
+                    ex);
+            }
+        }
+        if (propertyDescriptor instanceof IndexedPropertyDescriptor
+                && ((IndexedPropertyDescriptor) propertyDescriptor)
+                    .getIndexedReadMethod() != null) {
+            // the indexed read method exists, but could not be bound
+            return ValueUtils.getValue(bean, propertyDescriptor, index);
+        }
+
+        // We will fall through if there is no indexed read
+
+        return ValueUtils.getValue(getValue(bean), index);
+    }
+
+    /**
+     * Modifies the index'th element of the property of the specified bean.
+     * Converts the value to the required type if necessary.
+     * @param bean to modify
+     * @param index int
+     * @param value to set
+     */
+    public void setValue(Object bean, int index, Object value) {
+        if (indexedSetter != null) {
+            try {
+                indexedSetter.invokeExact(
+                    bean, index, convert(value, indexedPropertyType));
+                return;
+            }
+            catch (Throwable ex) {
+                throw new RuntimeException(
+                    "Cannot access property: "
+                        + propertyDescriptor.getName()
+                        + ", "
+                        + ex.getMessage());
+            }
+        }
+        if (propertyDescriptor instanceof IndexedPropertyDescriptor
+                && ((IndexedPropertyDescriptor) propertyDescriptor)
+                    .getIndexedWriteMethod() != null) {
+            // the indexed write method exists, but could not be bound
+            ValueUtils.setValue(bean, propertyDescriptor, index, value);
+            return;
+        }
+        // We will fall through if there is no indexed write
+        Object collection = getValue(bean);
+        if (ValueUtils.isCollection(collection)) {
+            ValueUtils.setValue(collection, index, value);
+        }
+        else if (index == 0) {
+            setValue(bean, value);
+        }
+        else {
+            throw new RuntimeException(
+                "Not a collection: " + propertyDescriptor.getName());
+        }
+    }
+
+    /**
+     * Convert value to type.
+     * @param value Object
+     * @param type destination
+     * @return conversion result
+     */
+    private static Object convert(Object value, Class type) {
+        try {
+            return TypeUtils.convert(value, type);
+        }
+        catch (Exception ex) {
+            throw new JXPathException(
+                "Cannot convert value of class "
+                    + (value == null ? "null" : value.getClass().getName())
+                    + " to type "
+                    + type,
+                ex);
+        }
+    }
+
+    /**
+     * Method handles propagate the exceptions thrown by the target method
+     * as they are; wrap them the way reflection does, so that exception
+     * chains look the same as with <code>Method.invoke</code>.
+     * @param ex exception caught
+     * @return Throwable
+     */
+    private static Throwable wrap(Throwable ex) {
+        return ex instanceof JXPathException ? ex
+                : new InvocationTargetException(ex);
+    }
+}
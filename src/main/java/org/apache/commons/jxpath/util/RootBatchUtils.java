@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.jxpath.CompiledExpression;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathException;
+
+/**
+ * Evaluates an expression against a number of roots in batches, for
+ * {@link JXPathContext#getValues(CompiledExpression, Collection, Class,
+ * Executor, int, JXPathException[])}.
+ *
+ * @version $Revision$ $Date$
+ * @since JXPath 1.4
+ */
+public final class RootBatchUtils {
+
+    /**
+     * Utility class, not instantiated.
+     */
+    private RootBatchUtils() {
+    }
+
+    /**
+     * Evaluates an expression against each of the roots in a context bound
+     * with {@link JXPathContext#bind(Object)}, batchSize roots at a time,
+     * and stores the values at the same indices of <code>values</code>.
+     * @param template context to bind to each root
+     * @param expression to evaluate
+     * @param roots beans to evaluate the expression against
+     * @param values receives the values, as long as <code>roots</code>
+     * @param requiredType type to convert values to, may be <code>null</code>
+     * @param executor runs the batches, may be <code>null</code>
+     * @param batchSize number of roots in a batch, at least 1
+     * @param errors receives the exceptions thrown, may be <code>null</code>
+     */
+    public static void evaluate(JXPathContext template,
+            CompiledExpression expression, Object[] roots, Object[] values,
+            Class requiredType, Executor executor, int batchSize,
+            JXPathException[] errors) {
+        int batchCount = (roots.length + batchSize - 1) / batchSize;
+        if (batchCount == 0) {
+            return;
+        }
+        RootBatches batches = new RootBatches(template, expression, roots,
+            values, requiredType, errors, batchSize, batchCount);
+        if (executor instanceof ForkJoinPool) {
+            ForkJoinPool pool = (ForkJoinPool) executor;
+            RootTask task = new RootTask(batches, 0, batchCount);
+            if (ForkJoinTask.getPool() == pool) {
+                task.invoke();
+            }
+            else {
+                pool.invoke(task);
+            }
+        }
+        else {
+            if (executor != null) {
+                for (int i = 1; i < batchCount; i++) {
+                    try {
+                        executor.execute(batches);
+                    }
+                    catch (RejectedExecutionException ex) {
+                        // The calling thread takes the batches left
+                        break;
+                    }
+                }
+            }
+            batches.run();
+            try {
+                batches.await();
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new JXPathException("Interrupted while evaluating "
+                    + expression, ex);
+            }
+        }
+        batches.rethrow();
+    }
+
+    /**
+     * The batches of roots of a call to {@link JXPathContext#getValues(
+     * CompiledExpression, Collection, Class, Executor, int,
+     * JXPathException[])}. Each thread that runs it takes the batches no
+     * thread has started yet until there are none left.
+     */
+    private static final class RootBatches implements Runnable {
+        private final JXPathContext template;
+        private final CompiledExpression expression;
+        private final Object[] roots;
+        private final Object[] values;
+        private final Class requiredType;
+        private final JXPathException[] errors;
+        private final int batchSize;
+        private final Throwable[] failures;
+        private final AtomicInteger nextBatch = new AtomicInteger();
+        private final CountDownLatch done;
+
+        /**
+         * Create a new RootBatches.
+         * @param template context to bind to each root
+         * @param expression to evaluate
+         * @param roots all roots
+         * @param values receives the values
+         * @param requiredType type to convert values to
+         * @param errors receives the exceptions thrown, may be null
+         * @param batchSize number of roots in a batch
+         * @param batchCount number of batches
+         */
+        private RootBatches(JXPathContext template,
+                CompiledExpression expression, Object[] roots, Object[] values,
+                Class requiredType, JXPathException[] errors, int batchSize,
+                int batchCount) {
+            this.template = template;
+            this.expression = expression;
+            this.roots = roots;
+            this.values = values;
+            this.requiredType = requiredType;
+            this.errors = errors;
+            this.batchSize = batchSize;
+            failures = new Throwable[batchCount];
+            done = new CountDownLatch(batchCount);
+        }
+
+        public void run() {
+            int batch;
+            while ((batch = nextBatch.getAndIncrement()) < failures.length) {
+                try {
+                    evaluate(batch);
+                }
+                finally {
+                    done.countDown();
+                }
+            }
+        }
+
+        /**
+         * Wait until the batches taken by other threads are done. Only
+         * called once all batches have been taken.
+         * @throws InterruptedException if interrupted while waiting
+         */
+        private void await() throws InterruptedException {
+            done.await();
+        }
+
+        /**
+         * Evaluate the expression against the roots of a batch.
+         * @param batch index of the batch
+         */
+        private void evaluate(int batch) {
+            int from = batch * batchSize;
+            int to = Math.min(roots.length, from + batchSize);
+            try {
+                for (int i = from; i < to; i++) {
+                    try {
+                        values[i] = expression.getValue(
+                            template.bind(roots[i]), requiredType);
+                    }
+                    catch (JXPathException ex) {
+                        if (errors == null) {
+                            throw ex;
+                        }
+                        errors[i] = ex;
+                    }
+                }
+            }
+            catch (Throwable ex) {
+                failures[batch] = ex;
+            }
+        }
+
+        /**
+         * Throw the exception that stopped the first failed batch, if any.
+         */
+        private void rethrow() {
+            for (int i = 0; i < failures.length; i++) {
+                if (failures[i] instanceof RuntimeException) {
+                    throw (RuntimeException) failures[i];
+                }
+                if (failures[i] instanceof Error) {
+                    throw (Error) failures[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates a range of the batches of {@link RootBatches} with fork/join
+     * tasks.
+     */
+    private static final class RootTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RootBatches batches;
+        private final int from;
+        private final int to;
+
+        /**
+         * Create a new RootTask.
+         * @param batches to evaluate
+         * @param from index of the first batch
+         * @param to index following the last batch
+         */
+        private RootTask(RootBatches batches, int from, int to) {
+            this.batches = batches;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RootTask(batches, from, middle),
+                    new RootTask(batches, middle, to));
+                return;
+            }
+            batches.evaluate(from);
+        }
+    }
+}
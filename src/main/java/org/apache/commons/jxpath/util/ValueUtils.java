@@ -60,6 +60,55 @@ public class ValueUtils {
         return value instanceof Collection;
     }
 
+    /**
+     * Returns true if the object is an array of a primitive numeric type:
+     * byte, short, int, long, float or double.
+     * @param value to test
+     * @return boolean
+     * @since JXPath 1.4
+     */
+    public static boolean isPrimitiveNumberArray(Object value) {
+        return value instanceof int[]
+            || value instanceof double[]
+            || value instanceof long[]
+            || value instanceof float[]
+            || value instanceof short[]
+            || value instanceof byte[];
+    }
+
+    /**
+     * Returns the index'th element of a primitive numeric array as a double,
+     * without boxing it.
+     * @param array an array for which {@link #isPrimitiveNumberArray(Object)}
+     *        returns true
+     * @param index int
+     * @return double
+     * @since JXPath 1.4
+     */
+    public static double getDoubleValue(Object array, int index) {
+        if (array instanceof int[]) {
+            return ((int[]) array)[index];
+        }
+        if (array instanceof double[]) {
+            return ((double[]) array)[index];
+        }
+        if (array instanceof long[]) {
+            return ((long[]) array)[index];
+        }
+        if (array instanceof float[]) {
+            return ((float[]) array)[index];
+        }
+        if (array instanceof short[]) {
+            return ((short[]) array)[index];
+        }
+        if (array instanceof byte[]) {
+            return ((byte[]) array)[index];
+        }
+        throw new IllegalArgumentException(
+            "Not a primitive number array: "
+                + (array == null ? "null" : array.getClass().getName()));
+    }
+
     /**
      * Returns 1 if the type is a collection,
      * -1 if it is definitely not
@@ -176,6 +225,27 @@ public class ValueUtils {
         return Collections.singletonList(collection).iterator();
     }
 
+    /**
+     * Collects a page of the elements of an Iterator: the elements
+     * following the first <code>offset</code> ones, up to <code>limit</code>
+     * of them. No more elements are read once the page is full.
+     * @param iterator to read
+     * @param offset number of elements to skip
+     * @param limit largest number of elements to collect
+     * @return Iterator over the page
+     * @since JXPath 1.4
+     */
+    public static Iterator page(Iterator iterator, int offset, int limit) {
+        for (int i = 0; i < offset && iterator.hasNext(); i++) {
+            iterator.next();
+        }
+        List page = new ArrayList();
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page.iterator();
+    }
+
     /**
      * Grows the collection if necessary to the specified size. Returns
      * the new, expanded collection.
@@ -179,6 +179,17 @@ public abstract class JXPathTestCase extends TestCase {
             actual);
     }
 
+    protected void assertXPathPointersEqual(
+        JXPathContext expected,
+        JXPathContext actual,
+        String xpath)
+    {
+        assertEquals(
+            "Evaluating pointers <" + xpath + ">",
+            pointerPaths(expected.iteratePointers(xpath)),
+            pointerPaths(actual.iteratePointers(xpath)));
+    }
+
     protected void assertDocumentOrder(
         JXPathContext context,
         String path1,
@@ -222,6 +233,14 @@ public abstract class JXPathTestCase extends TestCase {
                 clazz.isAssignableFrom(actual.getNode().getClass()));
     }
     
+    protected static List pointerPaths(Iterator it) {
+        List paths = new ArrayList();
+        while (it.hasNext()) {
+            paths.add(((Pointer) it.next()).asPath());
+        }
+        return paths;
+    }
+
     protected static List list() {
         return Collections.EMPTY_LIST;
     }
@@ -16,8 +16,23 @@
  */
 package org.apache.commons.jxpath.ri;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.jxpath.CompiledBatch;
+import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathException;
 import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.NestedTestBean;
+import org.apache.commons.jxpath.TestBean;
 import org.apache.commons.jxpath.ri.compiler.Constant;
 import org.apache.commons.jxpath.ri.compiler.CoreFunction;
 import org.apache.commons.jxpath.ri.compiler.CoreOperationAdd;
@@ -247,6 +262,229 @@ public class JXPathCompiledExpressionTest extends JXPathTestCase {
         assertXPathExpression("$x:y", VariableReference.class);
     }
     
+    public void testRepeatedSearch() {
+        // Non-simple paths are searched with a chain of contexts that is
+        // kept between evaluations
+        CompiledExpression byName =
+            JXPathContext.compile("beans[name = $name]/int");
+        CompiledExpression descendant =
+            JXPathContext.compile("descendant::nestedBean/name");
+        for (int i = 0; i < 3; i++) {
+            TestBean bean = new TestBean();
+            bean.getNestedBean().setName("Nested " + i);
+            JXPathContext context = JXPathContext.newContext(bean);
+            context.getVariables().declareVariable("name", "Name " + (i % 2 + 1));
+            assertEquals(new Integer(i % 2 == 0 ? 1 : 3), byName.getValue(context));
+            assertEquals("Nested " + i, descendant.getValue(context));
+            context.getVariables().declareVariable("name", "None");
+            assertNull(byName.getPointer(context, "beans[name = $name]/int").getValue());
+        }
+    }
+
+    public void testGetValues() {
+        String[] xpaths = new String[] {
+            "beans[name = 'Name 2']/int",
+            "beans[name = 'Name 2']/name",
+            "beans[int > 1]/strings[2]",
+            "beans[name != '']/nestedBean/name",
+            "beans[name != '']/nestedBean/int",
+            "/beans[name = 'Name 1']/int",
+            "/beans[name = 'Name 1']/name",
+            "nestedBean[int = 1]/name",
+            "integers[2]",
+            "count(beans)",
+            "beans[name = 'None']/int",
+            "beans[name != '']/nonexistent",
+            "beans/nestedBean/name",
+            "beans/nestedBean/strings[2]",
+            "beans/nestedBean/nonexistent",
+            "beans/int",
+            "nestedBean/strings[. = 'String 3']",
+        };
+        CompiledBatch batch = JXPathContext.compile(xpaths);
+        JXPathContext context = JXPathContext.newContext(new TestBean());
+        context.setLenient(true);
+        for (int round = 0; round < 2; round++) {
+            Object[] values = batch.getValues(context, null, null);
+            for (int i = 0; i < xpaths.length; i++) {
+                assertEquals(xpaths[i], context.getValue(xpaths[i]), values[i]);
+            }
+        }
+
+        // Typed values, and errors reported separately for each expression
+        context.setLenient(false);
+        JXPathException[] errors = new JXPathException[xpaths.length];
+        String[] strings =
+            (String[]) batch.getValues(context, String.class, errors);
+        assertEquals("3", strings[0]);
+        assertEquals("Name 2", strings[1]);
+        assertEquals("String 2", strings[2]);
+        assertEquals("Name 0", strings[7]);
+        assertEquals("2.0", strings[9]);
+        assertNotNull(errors[11]);
+        assertNull(strings[11]);
+        assertNull(errors[0]);
+        try {
+            batch.getValues(context, null, null);
+            fail("Exception expected");
+        }
+        catch (JXPathException ex) {
+            // expected
+        }
+        try {
+            batch.getValues(context, null, new JXPathException[1]);
+            fail("Exception expected");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public void testGetValuesOfRoots() throws InterruptedException {
+        JXPathContext template = JXPathContext.newContext(null);
+        CompiledExpression expression = JXPathContext.compile("name");
+        List roots = new ArrayList();
+        for (int i = 0; i < 100; i++) {
+            roots.add(i == 42 ? (Object) new TestBean()
+                    : new NestedTestBean("bean " + i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            JXPathException[] errors = new JXPathException[roots.size()];
+            String[] names = (String[]) template.getValues(expression, roots,
+                String.class, executor, 7, errors);
+            for (int i = 0; i < names.length; i++) {
+                if (i == 42) {
+                    assertNull(names[i]);
+                    assertNotNull(errors[i]);
+                }
+                else {
+                    assertEquals("bean " + i, names[i]);
+                    assertNull(errors[i]);
+                }
+            }
+            try {
+                template.getValues(expression, roots, null, executor, 7, null);
+                fail("Exception expected");
+            }
+            catch (JXPathException ex) {
+                // expected
+            }
+
+            template.setLenient(true);
+            Object[] values = template.getValues(expression, roots, null,
+                null, 10, null);
+            assertEquals("bean 0", values[0]);
+            assertNull(values[42]);
+            assertEquals(0, template.getValues(expression, new ArrayList(),
+                null, executor, 1, null).length);
+            try {
+                template.getValues(expression, roots, null, executor, 7,
+                    new JXPathException[1]);
+                fail("Exception expected");
+            }
+            catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    public void testGetValuesOfRootsInExecutorTask() throws Exception {
+        final JXPathContext template = JXPathContext.newContext(null);
+        final CompiledExpression expression = JXPathContext.compile("name");
+        final List roots = new ArrayList();
+        for (int i = 0; i < 10; i++) {
+            roots.add(new NestedTestBean("bean " + i));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            Future future = executor.submit(new Callable() {
+                public Object call() {
+                    return template.getValues(expression, roots, null,
+                        executor, 2, null);
+                }
+            });
+            Object[] values = (Object[]) future.get(10, TimeUnit.SECONDS);
+            for (int i = 0; i < values.length; i++) {
+                assertEquals("bean " + i, values[i]);
+            }
+        }
+        finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            Object[] values = template.getValues(expression, roots, null,
+                pool, 3, null);
+            for (int i = 0; i < values.length; i++) {
+                assertEquals("bean " + i, values[i]);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testPagination() {
+        JXPathContext context = JXPathContext.newContext(new TestBean());
+        String[] paths = {
+            "integers",
+            "beans/strings",
+            "beans[position() > 1]/strings",
+            "beans/strings | integers",
+            "//strings",
+            "$none",
+        };
+        context.getVariables().declareVariable("none", null);
+        for (int i = 0; i < paths.length; i++) {
+            JXPathCompiledExpression expression =
+                (JXPathCompiledExpression) JXPathContext.compile(paths[i]);
+            List values = list(context.iterate(paths[i]));
+            List pointers = pointerPaths(context.iteratePointers(paths[i]));
+            for (int offset = 0; offset <= values.size() + 1; offset++) {
+                for (int limit = 0; limit <= values.size() + 1; limit++) {
+                    String message = paths[i] + " " + offset + " " + limit;
+                    List page = slice(values, offset, limit);
+                    assertEquals(message, page,
+                        list(context.iterate(paths[i], offset, limit)));
+                    assertEquals(message, page,
+                        list(expression.iterate(context, offset, limit)));
+                    page = slice(pointers, offset, limit);
+                    assertEquals(message, page, pointerPaths(
+                        context.iteratePointers(paths[i], offset, limit)));
+                    assertEquals(message, page, pointerPaths(
+                        expression.iteratePointers(context, offset, limit)));
+                }
+            }
+        }
+        try {
+            context.iterate("integers", -1, 1);
+            fail("Exception expected");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    private static List list(Iterator iterator) {
+        List list = new ArrayList();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+    private static List slice(List list, int offset, int limit) {
+        int from = Math.min(offset, list.size());
+        return list.subList(from, Math.min(from + limit, list.size()));
+    }
+
     /**
      * Compiles the xpath into an Expression, checks the expression
      * class, converts the expression to string and checks that the string
@@ -1,7 +1,19 @@
 package org.apache.commons.jxpath.ri;
 
+import java.util.ArrayList;
+import java.util.Locale;
+
 import junit.framework.TestCase;
 
+import org.apache.commons.jxpath.ClassFunctions;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.NestedTestBean;
+import org.apache.commons.jxpath.TestBean;
+import org.apache.commons.jxpath.ri.model.NodePointer;
+import org.apache.commons.jxpath.ri.model.NodePointerFactory;
+import org.apache.commons.jxpath.ri.model.beans.BeanPointerFactory;
+import org.apache.commons.jxpath.ri.model.beans.CollectionPointerFactory;
+import org.apache.commons.jxpath.ri.model.beans.NullPointer;
 import org.apache.commons.jxpath.ri.model.container.ContainerPointerFactory;
 
 public class JXPathContextReferenceImplTestCase extends TestCase {
@@ -12,4 +24,89 @@ public class JXPathContextReferenceImplTestCase extends TestCase {
     public void testInit() {
         JXPathContextReferenceImpl.addNodePointerFactory(new ContainerPointerFactory());
     }
+
+    public void testNodePointerFactoryDispatch() {
+        NodePointerFactory[] factories =
+            JXPathContextReferenceImpl.getNodePointerFactories(TestBean.class);
+        assertTrue(factories[factories.length - 1] instanceof BeanPointerFactory);
+        for (int i = 0; i < factories.length; i++) {
+            assertFalse(factories[i] instanceof CollectionPointerFactory);
+            assertFalse(factories[i] instanceof ContainerPointerFactory);
+        }
+        factories =
+            JXPathContextReferenceImpl.getNodePointerFactories(ArrayList.class);
+        assertTrue(factories[factories.length - 1] instanceof CollectionPointerFactory);
+    }
+
+    public void testAddedNodePointerFactoryIsQueried() {
+        JXPathContext.newContext(new Marker());
+        JXPathContextReferenceImpl.addNodePointerFactory(new MarkerPointerFactory());
+        JXPathContext context = JXPathContext.newContext(new Marker());
+        assertTrue(context.getContextPointer() instanceof MarkerPointer);
+    }
+
+    public void testBind() {
+        JXPathContext template = JXPathContext.newContext(null);
+        template.setLenient(true);
+        template.setLocale(Locale.FRENCH);
+        template.registerNamespace("x", "urn:x");
+        template.getVariables().declareVariable("limit", new Integer(2));
+        template.setFunctions(new ClassFunctions(Math.class, "math"));
+
+        JXPathContext first = template.bind(new TestBean());
+        JXPathContext second = template.bind(new NestedTestBean("nested"));
+        assertTrue(first.isLenient());
+        assertEquals(Locale.FRENCH, first.getLocale());
+        assertEquals("urn:x", first.getNamespaceURI("x"));
+        assertEquals(Boolean.TRUE, first.getValue("integers[$limit] = 2"));
+        assertEquals(new Double(3), first.getValue("math:sqrt(integers[3] + 6)"));
+        assertEquals("nested", second.getValue("name"));
+        assertNull(second.getValue("nonexistent"));
+
+        // Bound contexts share the namespace resolver and the variables
+        JXPathContextReferenceImpl impl = (JXPathContextReferenceImpl) template;
+        assertSame(impl.getNamespaceResolver(),
+                ((JXPathContextReferenceImpl) first).getNamespaceResolver());
+        assertSame(template.getVariables(), second.getVariables());
+        first.getVariables().declareVariable("limit", new Integer(3));
+        assertEquals(new Integer(3), second.getValue("$limit"));
+        first.getVariables().declareVariable("limit", new Integer(2));
+
+        // Namespaces registered on a bound context stay there
+        first.registerNamespace("y", "urn:y");
+        assertEquals("urn:y", first.getNamespaceURI("y"));
+        assertEquals("urn:x", first.getNamespaceURI("x"));
+        assertNull(template.getNamespaceURI("y"));
+        assertNull(second.getNamespaceURI("y"));
+
+        // The template can still be reconfigured
+        template.registerNamespace("z", "urn:z");
+        assertEquals("urn:z", template.getNamespaceURI("z"));
+        assertEquals("urn:z", template.bind(new TestBean()).getNamespaceURI("z"));
+    }
+
+    public static class Marker {
+    }
+
+    private static class MarkerPointer extends NullPointer {
+        private static final long serialVersionUID = 1L;
+
+        public MarkerPointer(QName name, Locale locale) {
+            super(name, locale);
+        }
+    }
+
+    private static class MarkerPointerFactory implements NodePointerFactory {
+        public int getOrder() {
+            return 50;
+        }
+
+        public NodePointer createNodePointer(QName name, Object object, Locale locale) {
+            return object instanceof Marker ? new MarkerPointer(name, locale) : null;
+        }
+
+        public NodePointer createNodePointer(NodePointer parent, QName name, Object object) {
+            return null;
+        }
+    }
 }
@@ -16,6 +16,10 @@
  */
 package org.apache.commons.jxpath.ri.axes;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathTestCase;
 
@@ -48,4 +52,101 @@ public class RecursiveAxesTest extends JXPathTestCase {
             "//.[name = 'three']",
             "/first/first/second");
     }
+
+    public void testParallelDescent() {
+        // A binary tree with links back up to the root of every subtree
+        RecursiveBean root = new RecursiveBean("root");
+        grow(root, root, 6);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertParallelDescent(bean, pool, "//.[name = 'three']");
+            assertParallelDescent(bean, pool, "//name");
+            assertParallelDescent(bean, pool, "descendant::*");
+            assertParallelDescent(root, pool, "//name");
+            assertParallelDescent(root, pool, "descendant-or-self::*");
+            assertParallelDescent(root, pool, "//second[name = 'root.1.1.2']/name");
+            assertParallelDescent(root, pool, "first/descendant::second[2]/name");
+
+            JXPathContext parallel = JXPathContext.newContext(root);
+            parallel.setForkJoinPool(pool);
+            assertEquals(JXPathContext.newContext(root).getValue("count(//name)"),
+                parallel.getValue("count(//name)"));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testParallelDescentFindsFirstNodeLazily() {
+        CountingNode root = new CountingNode("r", 5, 4);
+        String xpath = "//kids[name = 'r.0']/name";
+        JXPathContext sequential = JXPathContext.newContext(root);
+        CountingNode.reads = 0;
+        assertEquals("r.0", sequential.getValue(xpath));
+        int sequentialReads = CountingNode.reads;
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            JXPathContext parallel = JXPathContext.newContext(root);
+            parallel.setForkJoinPool(pool);
+            CountingNode.reads = 0;
+            assertEquals("r.0", parallel.getValue(xpath));
+            assertEquals(sequentialReads, CountingNode.reads);
+
+            assertEquals(sequential.getValue("count(//kids/name)"),
+                parallel.getValue("count(//kids/name)"));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    private void grow(RecursiveBean bean, RecursiveBean top, int depth) {
+        if (depth == 0) {
+            bean.setFirst(top);
+            return;
+        }
+        RecursiveBean first = new RecursiveBean(bean.getName() + ".1");
+        RecursiveBean second = new RecursiveBean(bean.getName() + ".2");
+        bean.setFirst(first);
+        bean.setSecond(second);
+        grow(first, bean, depth - 1);
+        grow(second, top, depth - 1);
+    }
+
+    private void assertParallelDescent(Object root, ForkJoinPool pool,
+            String xpath) {
+        JXPathContext sequential = JXPathContext.newContext(root);
+        JXPathContext parallel = JXPathContext.newContext(root);
+        parallel.setForkJoinPool(pool);
+        assertTrue(xpath, sequential.iteratePointers(xpath).hasNext());
+        assertXPathPointersEqual(sequential, parallel, xpath);
+    }
+
+    /**
+     * A tree node that counts how many times children are read.
+     */
+    public static class CountingNode {
+        private static volatile int reads;
+
+        private String name;
+        private List kids = new ArrayList();
+
+        public CountingNode(String name, int width, int depth) {
+            this.name = name;
+            for (int i = 0; depth > 0 && i < width; i++) {
+                kids.add(new CountingNode(name + "." + i, width, depth - 1));
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List getKids() {
+            reads++;
+            return kids;
+        }
+    }
 }
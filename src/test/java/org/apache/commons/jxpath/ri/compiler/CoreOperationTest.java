@@ -16,9 +16,13 @@
  */
 package org.apache.commons.jxpath.ri.compiler;
 
+import java.util.concurrent.ForkJoinPool;
+
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.TestBean;
 import org.apache.commons.jxpath.Variables;
+import org.apache.commons.jxpath.ri.JXPathCompiledExpression;
 
 /**
  * Test basic functionality of JXPath - infoset types,
@@ -140,4 +144,55 @@ public class CoreOperationTest extends JXPathTestCase {
         assertXPathValue(context, "$nan = 1", Boolean.FALSE, Boolean.class);
         assertXPathValue(context, "$nan != 1", Boolean.FALSE, Boolean.class);
     }
-}
\ No newline at end of file
+
+    public void testParallelUnion() {
+        TestBean bean = new TestBean();
+        JXPathContext sequential = JXPathContext.newContext(bean);
+        JXPathContext parallel = JXPathContext.newContext(bean);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel.setForkJoinPool(pool);
+            parallel.setMaxParallelBranches(2);
+            String[] xpaths = new String[] {
+                "beans/name | nestedBean/name | //strings | integers",
+                "integers[3] | beans[1]/int | integers | integers[2]",
+                "//name | //int | (beans[2] | beans[1])/strings",
+                "map/* | set | list | nestedBean/strings[2]",
+                "beans[(name | int) = 'Name 2']/int | boolean",
+            };
+            for (int i = 0; i < xpaths.length; i++) {
+                assertXPathPointersEqual(sequential, parallel, xpaths[i]);
+            }
+            assertEquals(sequential.getValue("count(//* | //name)"),
+                parallel.getValue("count(//* | //name)"));
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testTypedEvaluation() {
+        assertEquals(7.0, context.getDouble("1 + 2 * 3"), 0.0);
+        assertEquals(1.5, context.getDouble("sum($array)"), 0.0);
+        assertEquals(-1.0, context.getDouble("-5 mod 2"), 0.0);
+        assertEquals(1.0, context.getDouble("$integer"), 0.0);
+        assertEquals(2.0, context.getDouble("'2'"), 0.0);
+        assertEquals(1.0, context.getDouble("true()"), 0.0);
+        assertTrue(Double.isNaN(context.getDouble("$nan * 2")));
+        assertEquals(2L, context.getLong("5 div 2"));
+        assertEquals(3L, context.getLong("round(2.5)"));
+        assertTrue(context.getBoolean("3 > 2 and 2 > 1"));
+        assertFalse(context.getBoolean("not(1 = 1)"));
+        assertTrue(context.getBoolean("$integer"));
+        assertEquals("4.0", context.getString("2 + 2"));
+
+        JXPathCompiledExpression sum =
+            (JXPathCompiledExpression) context.compile("$integer + 5");
+        assertEquals(6.0, sum.getDouble(context), 0.0);
+        assertEquals(6L, sum.getLong(context));
+        assertTrue(((JXPathCompiledExpression) context.compile("$integer < 5"))
+                .getBoolean(context));
+        assertEquals("1", ((JXPathCompiledExpression) context
+                .compile("string($integer)")).getString(context));
+    }
+}
@@ -18,15 +18,22 @@ package org.apache.commons.jxpath.ri.compiler;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.jxpath.ClassFunctions;
+import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.ExpressionContext;
 import org.apache.commons.jxpath.Function;
 import org.apache.commons.jxpath.FunctionLibrary;
 import org.apache.commons.jxpath.Functions;
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.JXPathInvalidAccessException;
 import org.apache.commons.jxpath.JXPathTestCase;
 import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.PackageFunctions;
@@ -151,6 +158,37 @@ public class ExtensionFunctionTest extends JXPathTestCase {
             "1*");
     }
 
+    public void testVoidMethodInvocation() {
+        Object[] args = new Object[] { new TestFunctions()};
+        Function func = functions.getFunction("test", "doit", args);
+        assertNull("test:doit($test)", func.invoke(new Context(null), args));
+    }
+
+    public void testInvocationException() {
+        Object[] args = new Object[] { "foo", new Integer(5) };
+        Function func = new PackageFunctions("", "call").getFunction(
+            "call", "charAt", args);
+        try {
+            func.invoke(new Context(null), args);
+            fail("Exception expected");
+        }
+        catch (JXPathInvalidAccessException ex) {
+            assertTrue(ex.getException() instanceof StringIndexOutOfBoundsException);
+        }
+    }
+
+    public void testInvocationWithWrongArgumentCount() {
+        Object[] args = new Object[] { new Integer(1), "x" };
+        Function func = functions.getFunction("test", "build", args);
+        try {
+            func.invoke(new Context(null), new Object[] { new Integer(1) });
+            fail("Exception expected");
+        }
+        catch (JXPathInvalidAccessException ex) {
+            // expected
+        }
+    }
+
     public void testAllocation() {
         
         // Allocate new object using the default constructor
@@ -257,6 +295,65 @@ public class ExtensionFunctionTest extends JXPathTestCase {
         assertXPathValue(context, "test:string(/beans/name)", "Name 1");
     }
 
+    public void testResolvedFunctionCache() {
+        CompiledExpression expr = JXPathContext.compile("p:valueOf('12')");
+        JXPathContext ctx = JXPathContext.newContext(testBean);
+        ctx.setFunctions(new ClassFunctions(Integer.class, "p"));
+        assertEquals(new Integer(12), expr.getValue(ctx));
+        assertEquals(new Integer(12), expr.getValue(ctx));
+
+        // Different functions installed: the call site must not reuse
+        // the method found before
+        ctx.setFunctions(new ClassFunctions(Boolean.class, "p"));
+        assertEquals(Boolean.FALSE, expr.getValue(ctx));
+
+        // Different argument types
+        expr = JXPathContext.compile("call:toString($v)");
+        ctx.getVariables().declareVariable("v", new Integer(8));
+        ctx.setFunctions(new PackageFunctions("", "call"));
+        assertEquals("8", expr.getValue(ctx));
+        ctx.getVariables().declareVariable("v", Boolean.TRUE);
+        assertEquals("true", expr.getValue(ctx));
+        ctx.getVariables().declareVariable("v", new Integer(9));
+        assertEquals("9", expr.getValue(ctx));
+    }
+
+    public void testFunctionLibraryLookupCache() {
+        FunctionLibrary lib = new FunctionLibrary();
+        lib.addFunctions(new ClassFunctions(TestFunctions.class, "test"));
+        Object[] args = new Object[] { new Integer(8) };
+        assertNull(lib.getFunction("test", "increment", args));
+        // The negative result is remembered
+        assertNull(lib.getFunction("test", "increment", args));
+
+        Functions increment = new ClassFunctions(TestFunctions2.class, "test");
+        lib.addFunctions(increment);
+        Function function = lib.getFunction("test", "increment", args);
+        assertNotNull(function);
+        assertSame(function, lib.getFunction("test", "increment", args));
+        assertEquals(new Integer(9), function.invoke(new Context(null), args));
+
+        lib.removeFunctions(increment);
+        assertNull(lib.getFunction("test", "increment", args));
+    }
+
+    public void testFunctionLibraryWithCustomFunctions() {
+        final int[] calls = new int[1];
+        FunctionLibrary lib = new FunctionLibrary();
+        lib.addFunctions(new ClassFunctions(TestFunctions.class, "test") {
+            public Function getFunction(String namespace, String name,
+                    Object[] parameters) {
+                calls[0]++;
+                return super.getFunction(namespace, name, parameters);
+            }
+        });
+        Object[] args = new Object[] { new Integer(1), "x" };
+        assertNotNull(lib.getFunction("test", "build", args));
+        assertNotNull(lib.getFunction("test", "build", args));
+        // Subclasses are always asked
+        assertEquals(2, calls[0]);
+    }
+
     public void testExpressionContext() {
         // Execute an extension function for each node while searching
         // The function uses ExpressionContext to get to the current
@@ -329,6 +426,85 @@ public class ExtensionFunctionTest extends JXPathTestCase {
             new ArrayList((Collection) values));
     }
 
+    public void testParallelPredicate() {
+        List numbers = new ArrayList();
+        for (int i = 0; i < 3000; i++) {
+            numbers.add(new Integer(i));
+        }
+        Map map = new HashMap();
+        map.put("numbers", numbers);
+        JXPathContext sequential = JXPathContext.newContext(map);
+        sequential.setFunctions(new ClassFunctions(TestFunctions.class, "test"));
+        JXPathContext parallel = JXPathContext.newContext(sequential, map);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel.setForkJoinPool(pool);
+            parallel.setParallelThreshold(8);
+            String[] xpaths = new String[] {
+                "numbers[test:isSquare(.)]",
+                "numbers[test:isSquare(.) and test:path() != '']",
+                "numbers[not(test:isSquare(.))][. < 30]",
+                "numbers[test:isSquare(.)][3]",
+                "numbers[position() > 20 and test:isSquare(.)]",
+                "numbers[. > 2990 or . < 3]",
+                "numbers[number(test:isSquare(.)) + 2]",
+            };
+            for (int i = 0; i < xpaths.length; i++) {
+                assertXPathPointersEqual(sequential, parallel, xpaths[i]);
+            }
+            assertEquals(sequential.getValue("numbers[test:isSquare(.)][last()]"),
+                parallel.getValue("numbers[test:isSquare(.)][last()]"));
+
+            // Nodes before the one failing are returned first
+            numbers.set(2500, new Integer(-1));
+            Iterator it = parallel.iterate("numbers[test:isSquare(.)]");
+            int count = 0;
+            try {
+                while (it.hasNext()) {
+                    it.next();
+                    count++;
+                }
+                fail("Exception expected");
+            }
+            catch (JXPathException ex) {
+                assertEquals(50, count);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    public void testParallelPredicateFirstMatch() {
+        List numbers = new ArrayList();
+        for (int i = 0; i < 3000; i++) {
+            numbers.add(new Integer(i));
+        }
+        Map map = new HashMap();
+        map.put("numbers", numbers);
+        JXPathContext parallel = JXPathContext.newContext(map);
+        parallel.setFunctions(new ClassFunctions(TestFunctions.class, "test"));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            parallel.setForkJoinPool(pool);
+            parallel.setParallelThreshold(8);
+            // Only the candidates up to the first match are checked
+            TestFunctions.SQUARE_CHECKS.set(0);
+            assertEquals(new Integer(1),
+                parallel.getValue("numbers[test:isSquare(.) and . > 0]"));
+            assertEquals(2, TestFunctions.SQUARE_CHECKS.get());
+
+            // All of them when the whole node set is read
+            TestFunctions.SQUARE_CHECKS.set(0);
+            assertEquals(new Double(55),
+                parallel.getValue("count(numbers[test:isSquare(.)])"));
+            assertEquals(3000, TestFunctions.SQUARE_CHECKS.get());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
     public void testNodeSetReturn() {
         assertXPathValueIterator(
             context,
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.jxpath.BasicNodeSet;
 import org.apache.commons.jxpath.ExpressionContext;
@@ -150,6 +151,20 @@ public class TestFunctions {
         return arg;
     }
 
+    /**
+     * Number of calls to {@link #isSquare(int)}.
+     */
+    public static final AtomicInteger SQUARE_CHECKS = new AtomicInteger();
+
+    public static boolean isSquare(int n) {
+        SQUARE_CHECKS.incrementAndGet();
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative: " + n);
+        }
+        int root = (int) Math.sqrt(n);
+        return root * root == n;
+    }
+
     public static Boolean isInstance(Object o, Class c) {
         return c.isInstance(o) ? Boolean.TRUE : Boolean.FALSE;
     }
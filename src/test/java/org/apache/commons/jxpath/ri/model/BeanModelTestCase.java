@@ -621,6 +621,8 @@ public abstract class BeanModelTestCase extends JXPathTestCase {
 
         assertXPathValue(context, "sum(integers)", new Double(10));        
 
+        assertXPathValue(context, "sum(integers[. > 2])", new Double(7));
+
         assertXPathValueAndPointer(
                 context,
                 "integers[last()]",
@@ -980,4 +982,27 @@ public abstract class BeanModelTestCase extends JXPathTestCase {
             "test:countPointers(strings)", 
             new Integer(3));
     }
-}
\ No newline at end of file
+
+    public void testPrimitiveArrayAggregation() {
+        JXPathContext array =
+            JXPathContext.newContext(new double[] { 1.5, 2.5, 4 });
+        assertXPathValue(array, "sum(.)", new Double(8));
+        assertXPathValue(array, "sum(.[. > 2])", new Double(6.5));
+
+        JXPathContext bean = JXPathContext.newContext(new PrimitiveArrayBean());
+        assertXPathValue(bean, "sum(values)", new Double(10));
+        assertXPathValue(bean, "sum(values[. > 2])", new Double(7));
+        assertXPathValueAndPointer(bean, "values[. > 3]", new Long(4),
+            "/values[4]");
+        assertXPathPointerIterator(bean, "values[. < 3]",
+            list("/values[1]", "/values[2]"));
+    }
+
+    public static class PrimitiveArrayBean {
+        private long[] values = { 1, 2, 3, 4 };
+
+        public long[] getValues() {
+            return values;
+        }
+    }
+}
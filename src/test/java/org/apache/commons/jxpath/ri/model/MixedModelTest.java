@@ -23,10 +23,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Vector;
 
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.NestedTestBean;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.TestBean;
 import org.apache.commons.jxpath.TestMixedModelBean;
@@ -384,6 +386,111 @@ public class MixedModelTest extends JXPathTestCase {
             actual);
     }
 
+    public void testSelectTop() {
+        int[] amounts = {5, 17, 3, 17, -1, 12, 8, 5, 20, 1};
+        List orders = new ArrayList();
+        for (int i = 0; i < amounts.length; i++) {
+            Map order = new HashMap();
+            order.put("id", new Integer(i));
+            if (amounts[i] >= 0) {
+                order.put("amount", i % 2 == 0 ? (Object) new Integer(amounts[i])
+                        : new Double(amounts[i]));
+            }
+            orders.add(order);
+        }
+        Map customer = new HashMap();
+        customer.put("order", orders);
+        JXPathContext context = JXPathContext.newContext(customer);
+
+        assertTop(context.selectTop("order", "amount", 4, true),
+            new int[] {8, 1, 3, 5});
+        assertTop(context.selectTop("order", "amount", 3, false),
+            new int[] {9, 2, 0});
+        assertTop(context.selectTop("order", "id", 2,
+            Collections.reverseOrder()), new int[] {9, 8});
+        assertTop(context.selectTop("order", "amount", 3, null),
+            new int[] {9, 2, 0});
+        assertTop(context.selectTop("order", "amount", 20, null),
+            new int[] {9, 2, 0, 7, 6, 5, 1, 3, 8});
+        assertTop(context.selectTop("order[id > 4]", "amount", 2, null),
+            new int[] {9, 7});
+        assertTrue(context.selectTop("order", "amount", 0, null).isEmpty());
+        assertTrue(context.selectTop("nonexistent", "amount", 5, null)
+                .isEmpty());
+        try {
+            context.selectTop("order", "amount", -1, null);
+            fail("Exception expected");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    public void testSelectTopMixedKeys() {
+        Object[] amounts = {new Integer(9), "10000", new Double(250.5), "75",
+            "n/a"};
+        List orders = new ArrayList();
+        for (int i = 0; i < amounts.length; i++) {
+            Map order = new HashMap();
+            order.put("id", new Integer(i));
+            order.put("amount", amounts[i]);
+            orders.add(order);
+        }
+        Map customer = new HashMap();
+        customer.put("order", orders);
+        JXPathContext context = JXPathContext.newContext(customer);
+
+        // Numbers and numeric strings by value, anything else as strings
+        assertTop(context.selectTop("order", "amount", 3, true),
+            new int[] {4, 1, 2});
+        assertTop(context.selectTop("order", "amount", 4, false),
+            new int[] {0, 3, 2, 1});
+    }
+
+    public void testSelectTopWithoutKey() {
+        List orders = new ArrayList();
+        for (int i = 0; i < 3; i++) {
+            Map order = new HashMap();
+            order.put("id", new Integer(i));
+            order.put("amount", new Integer(i * 10));
+            orders.add(order);
+        }
+        // A node that has no amount property at all
+        orders.add(1, new NestedTestBean("none"));
+        Map customer = new HashMap();
+        customer.put("order", orders);
+        JXPathContext context = JXPathContext.newContext(customer);
+        assertFalse(context.isLenient());
+
+        assertTop(context.selectTop("order", "amount", 5, true),
+            new int[] {2, 1, 0});
+        assertTop(context.selectTop("order", "amount[. > 5]", 5, false),
+            new int[] {1, 2});
+    }
+
+    private void assertTop(List pointers, int[] ids) {
+        assertEquals(ids.length, pointers.size());
+        for (int i = 0; i < ids.length; i++) {
+            Pointer pointer = (Pointer) pointers.get(i);
+            assertEquals(new Integer(ids[i]),
+                context.getRelativeContext(pointer).getValue("id"));
+        }
+    }
+
+    public void testSelectPointers() {
+        List pointers = context.selectPointers("list | $list/*");
+        assertTrue(pointers instanceof RandomAccess);
+        Iterator it = context.iteratePointers("list | $list/*");
+        for (int i = 0; i < pointers.size(); i++) {
+            assertEquals(((Pointer) it.next()).asPath(),
+                ((Pointer) pointers.get(i)).asPath());
+        }
+        assertFalse(it.hasNext());
+        assertEquals(((Double) context.getValue("count(list | $list/*)"))
+                .intValue(), pointers.size());
+        assertTrue(context.selectPointers("nonexistent").isEmpty());
+    }
+
     public void testIteratePointersArrayElementWithVariable() {
         Map map = new HashMap();
         map.put("foo", new String[] { "a", "b", "c" });
@@ -16,13 +16,18 @@
  */
 package org.apache.commons.jxpath.ri.model;
 
+import java.util.Map;
+
 import org.apache.commons.jxpath.AbstractFactory;
+import org.apache.commons.jxpath.CompiledExpression;
 import org.apache.commons.jxpath.IdentityManager;
 import org.apache.commons.jxpath.JXPathContext;
 import org.apache.commons.jxpath.JXPathException;
 import org.apache.commons.jxpath.JXPathTestCase;
 import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.Variables;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+import org.apache.commons.jxpath.ri.NamespaceResolver;
 import org.apache.commons.jxpath.xml.DocumentContainer;
 
 /**
@@ -844,6 +849,60 @@ public abstract class XMLModelTestCase extends JXPathTestCase {
                 "/vendor[1]/product[1]/goods:name[1]");
     }
 
+    public void testCompiledNamespaceRebinding() {
+        CompiledExpression expr =
+            JXPathContext.compile("count(vendor/product/rate:*)");
+        context.registerNamespace("rate", "priceNS");
+        assertEquals("Bound to priceNS", new Double(2), expr.getValue(context));
+        assertEquals("Cached binding", new Double(2), expr.getValue(context));
+
+        context.registerNamespace("rate", "productNS");
+        assertEquals("Rebound to productNS", new Double(1),
+                expr.getValue(context));
+
+        JXPathContext childCtx =
+            JXPathContext.newContext(context, context.getContextBean());
+        assertEquals("Inherited binding", new Double(1),
+                expr.getValue(childCtx));
+        childCtx.registerNamespace("rate", "priceNS");
+        assertEquals("Overridden in child", new Double(2),
+                expr.getValue(childCtx));
+        assertEquals("Parent unaffected", new Double(1),
+                expr.getValue(context));
+    }
+
+    public void testNamespaceBindingTables() {
+        CompiledExpression expr =
+            JXPathContext.compile("count(vendor/product/rate:*)");
+        context.registerNamespace("rate", "priceNS");
+        JXPathContext first =
+            JXPathContext.newContext(context, context.getContextBean());
+        JXPathContext second =
+            JXPathContext.newContext(context, context.getContextBean());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new Double(2), expr.getValue(first));
+            assertEquals(new Double(2), expr.getValue(second));
+        }
+        assertSame("Shared registrations",
+            getCurrentResolver(first).getBindingTable("rate"),
+            getCurrentResolver(second).getBindingTable("rate"));
+
+        NamespaceResolver parent = new NamespaceResolver();
+        parent.registerNamespace("a", "urn:a");
+        NamespaceResolver child = new NamespaceResolver(parent);
+        Map table = child.getBindingTable("a");
+        assertSame(table, child.getBindingTable("a"));
+        parent.registerNamespace("a", "urn:b");
+        assertNotSame("Unsealed parent changed", table,
+            child.getBindingTable("a"));
+        assertEquals("urn:b", child.getNamespaceURI("a"));
+    }
+
+    private NamespaceResolver getCurrentResolver(JXPathContext context) {
+        return ((JXPathContextReferenceImpl) context)
+                .getCurrentNamespaceResolver();
+    }
+
     public void testUnion() {
         assertXPathValue(context, "/vendor[1]/contact[1] | /vendor[1]/contact[4]", "John");
         assertXPathValue(context, "/vendor[1]/contact[4] | /vendor[1]/contact[1]", "John");
@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.ri.model.beans;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathTestCase;
+import org.apache.commons.jxpath.NestedTestBean;
+import org.apache.commons.jxpath.ri.JXPathContextReferenceImpl;
+
+/**
+ * Tests lazy navigation of Iterables with an {@link IterablePointerFactory}.
+ *
+ * @version $Revision$ $Date$
+ */
+public class IterablePointerTest extends JXPathTestCase {
+    private static boolean registered = false;
+
+    private CountingIterable iterable;
+
+    public void setUp() {
+        if (!registered) {
+            JXPathContextReferenceImpl.addNodePointerFactory(
+                new IterablePointerFactory());
+            registered = true;
+        }
+        iterable = new CountingIterable(1000);
+    }
+
+    public void testFirstMatchReadsOneElement() {
+        JXPathContext context = JXPathContext.newContext(iterable);
+        assertXPathValue(context, "name", "Name 0");
+        assertEquals(1, iterable.read);
+    }
+
+    public void testPredicateStopsAtFirstMatch() {
+        JXPathContext context = JXPathContext.newContext(iterable);
+        assertXPathValue(context, "name[. = 'Name 5']", "Name 5");
+        assertEquals(6, iterable.read);
+    }
+
+    public void testCount() {
+        JXPathContext context = JXPathContext.newContext(iterable);
+        assertXPathValue(context, "count(name)", new Double(1000));
+        assertEquals(1, iterable.opened);
+        assertXPathValue(context, "count(.)", new Double(1000));
+    }
+
+    public void testStreaming() {
+        JXPathContext context =
+            JXPathContext.newContext(new IterableHolder(iterable));
+        assertXPathValue(context, "count(items/name)", new Double(1000));
+        assertEquals(1, iterable.opened);
+
+        // last() goes back to the current node: the iterable is read once
+        // more, keeping the elements, and never again
+        iterable = new CountingIterable(10);
+        context = JXPathContext.newContext(new IterableHolder(iterable));
+        assertXPathValue(context, "items/name[last()]", "Name 9");
+        assertXPathValueIterator(context, "items/name[position() = last() - 1"
+            + " or position() = 3 or position() = 1]",
+            list("Name 0", "Name 2", "Name 8"));
+        assertEquals(2, iterable.opened);
+    }
+
+    public void testIterableProperty() {
+        JXPathContext context =
+            JXPathContext.newContext(new IterableHolder(iterable));
+        assertXPathValue(context, "items/name", "Name 0");
+        assertEquals(1, iterable.read);
+        assertXPathValue(context, "count(items/name)", new Double(1000));
+        assertXPathPointer(context, "items/name[. = 'Name 2']", "/items[3]/name");
+    }
+
+    public void testIterator() {
+        String[] paths = {"items/name", "count(items/name)",
+            "items/name[last()]", "items/name[2]", "count(items[last()])",
+            "items/name[position() = last() - 1]"};
+        Object[] values = {"Name 0", new Double(10), "Name 9", "Name 1",
+            new Double(1), "Name 8"};
+        for (int i = 0; i < paths.length; i++) {
+            JXPathContext context = JXPathContext.newContext(
+                new IterableHolder(new CountingIterable(10).iterator()));
+            assertXPathValue(context, paths[i], values[i]);
+            assertXPathValue(context, paths[i], values[i]);
+        }
+        JXPathContext context =
+            JXPathContext.newContext(new CountingIterable(10).iterator());
+        assertXPathValueIterator(context,
+            "name[. = 'Name 8' or . = 'Name 9']", list("Name 8", "Name 9"));
+        assertXPathValue(context, "name", "Name 0");
+    }
+
+    public static class IterableHolder {
+        private Object items;
+
+        public IterableHolder(Object items) {
+            this.items = items;
+        }
+
+        public Object getItems() {
+            return items;
+        }
+    }
+
+    /**
+     * Produces beans on the fly and counts how many were read.
+     */
+    private static class CountingIterable implements Iterable {
+        private int size;
+        private int read;
+        private int opened;
+
+        public CountingIterable(int size) {
+            this.size = size;
+        }
+
+        public Iterator iterator() {
+            opened++;
+            return new Iterator() {
+                private int next;
+
+                public boolean hasNext() {
+                    return next < size;
+                }
+
+                public Object next() {
+                    if (next >= size) {
+                        throw new NoSuchElementException();
+                    }
+                    read++;
+                    return new NestedTestBean("Name " + next++);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
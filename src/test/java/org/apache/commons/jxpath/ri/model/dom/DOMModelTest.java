@@ -16,8 +16,13 @@
  */
 package org.apache.commons.jxpath.ri.model.dom;
 
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
 import org.apache.commons.jxpath.AbstractFactory;
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.Pointer;
 import org.apache.commons.jxpath.ri.model.XMLModelTestCase;
 import org.apache.commons.jxpath.xml.DocumentContainer;
 
@@ -57,6 +62,40 @@ public class DOMModelTest extends XMLModelTestCase {
         assertXPathNodeType(childContext, "//vendor", Element.class);
     }
 
+    public void testSelectTop() throws Exception {
+        Document document = DocumentBuilderFactory.newInstance()
+                .newDocumentBuilder().newDocument();
+        Element orders = document.createElement("orders");
+        document.appendChild(orders);
+        String[] amounts = {"9", "10000", "250", "75"};
+        for (int i = 0; i < amounts.length; i++) {
+            Element order = document.createElement("order");
+            order.setAttribute("id", String.valueOf(i));
+            Element amount = document.createElement("amount");
+            amount.appendChild(document.createTextNode(amounts[i]));
+            order.appendChild(amount);
+            orders.appendChild(order);
+        }
+        JXPathContext context = JXPathContext.newContext(document);
+
+        // Text keys that represent numbers are compared as numbers
+        assertTopIds(context, context.selectTop("//order", "amount", 2, true),
+            new String[] {"1", "2"});
+        assertTopIds(context, context.selectTop("//order", "amount", 3, false),
+            new String[] {"0", "3", "2"});
+        assertTopIds(context, context.selectTop("//order", "@id", 2, true),
+            new String[] {"3", "2"});
+    }
+
+    private void assertTopIds(JXPathContext context, List pointers,
+            String[] ids) {
+        assertEquals(ids.length, pointers.size());
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], context.getRelativeContext(
+                (Pointer) pointers.get(i)).getValue("@id"));
+        }
+    }
+
     protected String getXMLSignature(
         Object node,
         boolean elements,
@@ -359,4 +359,22 @@ public class DynamicPropertiesModelTest extends JXPathTestCase {
             "//fruit/pear",
             "/map[@name='fruit']/pear");
     }
+
+    public void testNamedAccessToLargeMap() {
+        Map map = new HashMap();
+        for (int i = 0; i < 1000; i++) {
+            map.put("key" + i, new Integer(i));
+        }
+        map.put(new Integer(7), "seven");
+        JXPathContext mapContext = JXPathContext.newContext(map);
+
+        assertXPathValue(mapContext, "key500", new Integer(500));
+        assertXPathValue(mapContext, "/.[@name='key999']", new Integer(999));
+        assertXPathValue(mapContext, "count(/.[@name='key1000'])", new Double(0));
+        assertXPathValue(mapContext, "count(following-sibling::key1)", new Double(0));
+        assertXPathValue(mapContext, "count(key1/following-sibling::key10)",
+                new Double(1));
+        // non-String keys are named by their string value
+        assertXPathValue(mapContext, "count(/.[@name='7'])", new Double(1));
+    }
 }
@@ -26,6 +26,9 @@ import java.util.List;
 
 import junit.framework.TestCase;
 
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.Converter;
+
 import org.apache.commons.jxpath.NodeSet;
 import org.apache.commons.jxpath.Pointer;
 
@@ -163,4 +166,50 @@ public class BasicTypeConverterTest extends TestCase {
     public void testBeanUtilsConverter() {
         assertConversion("12", BigDecimal.class, new BigDecimal(12));
     }
-}
\ No newline at end of file
+
+    public void testRepeatedConversions() {
+        // The second round goes through the cached conversion plans
+        for (int i = 0; i < 2; i++) {
+            assertConversion(new Integer(i), Boolean.class, Boolean.valueOf(i != 0));
+            assertConversion(Boolean.TRUE, Double.class, new Double(1));
+            assertConversion("" + i, int.class, new Integer(i));
+            assertConversion(new int[] { i, 2 }, Integer[].class,
+                Arrays.asList(new Integer[] { new Integer(i), new Integer(2)}));
+            assertEquals(null, TypeUtils.convert(null, String.class));
+            assertEquals(new Integer(0), TypeUtils.convert(null, int.class));
+        }
+    }
+
+    public void testHeterogeneousArrayToArray() {
+        assertConversion(
+            new Object[] { new Integer(1), "2", Collections.singletonList("3") },
+            int[].class,
+            Arrays.asList(new Integer[] { new Integer(1), new Integer(2), new Integer(3)}));
+    }
+
+    public void testConverterRegisteredLater() {
+        assertFalse(TypeUtils.canConvert("x", StringBuffer.class));
+        ConvertUtils.register(new Converter() {
+            public Object convert(Class type, Object value) {
+                return new StringBuffer(String.valueOf(value));
+            }
+        }, StringBuffer.class);
+        try {
+            assertTrue(TypeUtils.canConvert("x", StringBuffer.class));
+            assertEquals("x", TypeUtils.convert("x", StringBuffer.class).toString());
+        }
+        finally {
+            ConvertUtils.deregister(StringBuffer.class);
+        }
+    }
+
+    public void testOverriddenConverter() {
+        BasicTypeConverter converter = new BasicTypeConverter() {
+            protected Number allocateNumber(Class type, double value) {
+                return super.allocateNumber(type, value * 2);
+            }
+        };
+        assertEquals(new Integer(2), converter.convert(new Double(1), Integer.class));
+        assertEquals(new Integer(2), TypeUtils.convert(new Double(2), Integer.class));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class CollectionCursorTest extends TestCase {
+
+    public void testGetCursor() {
+        Set set = new HashSet();
+        assertNull(CollectionCursor.getCursor(new ArrayList(), null));
+        assertNull(CollectionCursor.getCursor("string", null));
+        CollectionCursor cursor = CollectionCursor.getCursor(set, null);
+        assertSame(set, cursor.getCollection());
+        assertSame(cursor, CollectionCursor.getCursor(set, cursor));
+        assertNotSame(cursor, CollectionCursor.getCursor(new HashSet(), cursor));
+    }
+
+    public void testSequentialAccess() {
+        Set set = new LinkedHashSet(Arrays.asList(new Object[] { "a", "b", "c" }));
+        CollectionCursor cursor = new CollectionCursor(set);
+        assertEquals("a", cursor.get(0));
+        assertEquals("a", cursor.get(0));
+        assertEquals("b", cursor.get(1));
+        assertEquals("c", cursor.get(2));
+        assertNull(cursor.get(3));
+        assertNull(cursor.get(-1));
+    }
+
+    public void testRandomAccess() {
+        Set set = new LinkedHashSet(Arrays.asList(new Object[] { "a", "b", "c" }));
+        CollectionCursor cursor = new CollectionCursor(set);
+        assertEquals("c", cursor.get(2));
+        assertEquals("a", cursor.get(0));
+        assertEquals("b", cursor.get(1));
+    }
+
+    public void testModifiedCollection() {
+        Set set = new LinkedHashSet(Arrays.asList(new Object[] { "a", "b" }));
+        CollectionCursor cursor = new CollectionCursor(set);
+        assertEquals("a", cursor.get(0));
+        set.add("c");
+        assertEquals("b", cursor.get(1));
+        assertEquals("c", cursor.get(2));
+        set.remove("a");
+        assertEquals("b", cursor.get(0));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+
+public class LazyListTest extends TestCase {
+
+    public void testLazyRead() {
+        CountingIterator source = new CountingIterator(
+            Arrays.asList(new Object[] { "a", "b", "c", "d" }).iterator());
+        List list = new LazyList(source);
+        assertFalse(list.isEmpty());
+        assertEquals(1, source.reads);
+        assertEquals("b", list.get(1));
+        assertEquals(2, source.reads);
+        assertEquals("a", list.get(0));
+        assertEquals(2, source.reads);
+        Iterator it = list.iterator();
+        assertEquals("a", it.next());
+        assertEquals("b", it.next());
+        assertEquals("c", it.next());
+        assertEquals(3, source.reads);
+        assertEquals(4, list.size());
+        assertEquals(4, source.reads);
+        assertEquals("d", it.next());
+        assertFalse(it.hasNext());
+        try {
+            it.next();
+            fail("Exception expected");
+        }
+        catch (NoSuchElementException ex) {
+            // expected
+        }
+    }
+
+    public void testOutOfBounds() {
+        List list = new LazyList(Collections.singletonList("a").iterator());
+        try {
+            list.get(1);
+            fail("Exception expected");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+        try {
+            list.get(-1);
+            fail("Exception expected");
+        }
+        catch (IndexOutOfBoundsException ex) {
+            // expected
+        }
+        assertEquals(Collections.singletonList("a"), list);
+        assertTrue(new LazyList(Collections.EMPTY_LIST.iterator()).isEmpty());
+    }
+
+    private static class CountingIterator implements Iterator {
+        private final Iterator iterator;
+        private int reads;
+
+        public CountingIterator(Iterator iterator) {
+            this.iterator = iterator;
+        }
+
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        public Object next() {
+            reads++;
+            return iterator.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.commons.jxpath.util;
+
+import java.lang.reflect.InvocationTargetException;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.jxpath.JXPathBasicBeanInfo;
+import org.apache.commons.jxpath.JXPathException;
+import org.apache.commons.jxpath.TestBean;
+import org.apache.commons.jxpath.ri.model.ExceptionPropertyTestBean;
+
+public class PropertyAccessorTest extends TestCase {
+
+    private JXPathBasicBeanInfo beanInfo = new JXPathBasicBeanInfo(TestBean.class);
+
+    public void testGetAndSetValue() {
+        TestBean bean = new TestBean();
+        PropertyAccessor accessor = beanInfo.getPropertyAccessor("int");
+        assertEquals(new Integer(1), accessor.getValue(bean));
+        accessor.setValue(bean, "7");
+        assertEquals(7, bean.getInt());
+    }
+
+    public void testIndexedValue() {
+        TestBean bean = new TestBean();
+        PropertyAccessor accessor = beanInfo.getPropertyAccessor("integers");
+        assertEquals(new Integer(bean.getIntegers(1)), accessor.getValue(bean, 1));
+        assertNull(accessor.getValue(bean, 100));
+        accessor.setValue(bean, 1, new Double(42));
+        assertEquals(42, bean.getIntegers(1));
+    }
+
+    public void testSharedAccessor() {
+        assertSame(beanInfo.getPropertyAccessor("int"),
+                beanInfo.getPropertyAccessor("int"));
+        assertNull(beanInfo.getPropertyAccessor("nosuch"));
+    }
+
+    public void testExceptionChain() {
+        PropertyAccessor accessor = new JXPathBasicBeanInfo(
+                ExceptionPropertyTestBean.class).getPropertyAccessor("errorString");
+        try {
+            accessor.getValue(new ExceptionPropertyTestBean());
+            fail();
+        }
+        catch (JXPathException e) {
+            assertTrue(e.getCause() instanceof InvocationTargetException);
+        }
+    }
+}
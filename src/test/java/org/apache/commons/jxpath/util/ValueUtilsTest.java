@@ -76,4 +76,21 @@ public class ValueUtilsTest extends TestCase {
         dataSet.add(data);
         assertNull(ValueUtils.getValue(dataSet, -1));
     }
+
+    public void testIsPrimitiveNumberArray() {
+        assertTrue(ValueUtils.isPrimitiveNumberArray(new int[0]));
+        assertTrue(ValueUtils.isPrimitiveNumberArray(new double[0]));
+        assertTrue(ValueUtils.isPrimitiveNumberArray(new byte[0]));
+        assertFalse(ValueUtils.isPrimitiveNumberArray(new boolean[0]));
+        assertFalse(ValueUtils.isPrimitiveNumberArray(new char[0]));
+        assertFalse(ValueUtils.isPrimitiveNumberArray(new Integer[0]));
+        assertFalse(ValueUtils.isPrimitiveNumberArray(null));
+    }
+
+    public void testGetDoubleValueFromPrimitiveArray() {
+        assertEquals(3.0, ValueUtils.getDoubleValue(new int[] {1, 3}, 1), 0.0);
+        assertEquals(2.5, ValueUtils.getDoubleValue(new double[] {2.5}, 0), 0.0);
+        assertEquals(7.0, ValueUtils.getDoubleValue(new long[] {7L}, 0), 0.0);
+        assertEquals(-1.0, ValueUtils.getDoubleValue(new short[] {-1}, 0), 0.0);
+    }
 }